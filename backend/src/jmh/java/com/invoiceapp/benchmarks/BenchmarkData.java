@@ -0,0 +1,48 @@
+package com.invoiceapp.benchmarks;
+
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Deterministic invoices shaped like real ones, so runs are comparable with each other
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static Invoice invoice(int itemCount) {
+        Client client = new Client("Acme Corporation Pvt Ltd", "accounts@acme.example");
+        client.setId(42L);
+        client.setPhone("+91 98765 43210");
+        client.setAddress("221B Industrial Estate, Phase 2");
+        client.setCity("Bengaluru");
+        client.setState("Karnataka");
+        client.setZipCode("560001");
+        client.setCountry("India");
+        client.setGstNumber("29ABCDE1234F1Z5");
+
+        Invoice invoice = new Invoice("INV-000123", client, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        invoice.setId(123L);
+        invoice.setTaxRate(new BigDecimal("18.00"));
+        invoice.setNotes("Thank you for your business.");
+        invoice.setTerms("Payment due within 30 days.");
+        invoice.setUpdatedAt(LocalDateTime.of(2024, 3, 1, 10, 0));
+
+        List<InvoiceItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            InvoiceItem item = new InvoiceItem("Consulting services, work package " + (i + 1),
+                    BigDecimal.valueOf(1 + i % 7), new BigDecimal((100 + i % 50) + "." + (10 + i % 90)));
+            item.setId((long) i + 1);
+            item.setInvoice(invoice);
+            items.add(item);
+        }
+        invoice.setItems(items);
+        invoice.calculateTotals();
+        return invoice;
+    }
+}
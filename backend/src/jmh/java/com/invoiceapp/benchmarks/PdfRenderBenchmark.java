@@ -0,0 +1,50 @@
+package com.invoiceapp.benchmarks;
+
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.service.InvoicePdfRenderer;
+import com.invoiceapp.service.PdfService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Full render of one invoice, bypassing the PDF cache
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfRenderBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int items;
+
+    private PdfService pdfService;
+    private Invoice invoice;
+
+    @Setup
+    public void setUp() {
+        pdfService = new PdfService();
+        ReflectionTestUtils.setField(pdfService, "renderer", new InvoicePdfRenderer());
+        ReflectionTestUtils.setField(pdfService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(pdfService, "init");
+        invoice = BenchmarkData.invoice(items);
+    }
+
+    @Benchmark
+    public byte[] generateInvoicePdf() {
+        return pdfService.generateInvoicePdf(invoice);
+    }
+}
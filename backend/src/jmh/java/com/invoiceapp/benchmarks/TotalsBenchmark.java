@@ -0,0 +1,53 @@
+package com.invoiceapp.benchmarks;
+
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Line and invoice totals as computed on every create and update
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TotalsBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int items;
+
+    private Invoice invoice;
+
+    @Setup
+    public void setUp() {
+        invoice = BenchmarkData.invoice(items);
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotals() {
+        invoice.calculateTotals();
+        return invoice.getTotal();
+    }
+
+    @Benchmark
+    public void calculateItemTotals(Blackhole blackhole) {
+        for (InvoiceItem item : invoice.getItems()) {
+            item.calculateTotal();
+            blackhole.consume(item.getTotal());
+        }
+    }
+}
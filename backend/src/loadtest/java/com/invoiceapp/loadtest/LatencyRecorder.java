@@ -0,0 +1,80 @@
+package com.invoiceapp.loadtest;
+
+import java.util.Arrays;
+
+// Latencies of one operation on one worker thread, kept raw so percentiles are exact rather than bucketed.
+// Workers own their recorders; the harness merges them once the run is over.
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    void merge(LatencyRecorder other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + other.count));
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long sample : sorted) {
+            total += sample;
+        }
+        return new Summary(count, errors, count / seconds,
+                count == 0 ? 0 : millis(total / count),
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                count == 0 ? 0 : millis(sorted[count - 1]));
+    }
+
+    // Nearest-rank percentile
+    private static double percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+        return millis(sorted[Math.max(0, rank - 1)]);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static final class Summary {
+        final long count;
+        final long errors;
+        final double throughput;
+        final double mean;
+        final double p50;
+        final double p95;
+        final double p99;
+        final double max;
+
+        Summary(long count, long errors, double throughput, double mean, double p50, double p95, double p99, double max) {
+            this.count = count;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+    }
+}
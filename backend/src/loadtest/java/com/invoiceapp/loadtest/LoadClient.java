@@ -0,0 +1,203 @@
+package com.invoiceapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Issues the API calls the harness measures, against clients and invoices it seeded itself or found on the
+// target. Request bodies and parameters come from the caller's Random, so a run with the same seed and
+// thread count sends the same requests.
+final class LoadClient {
+
+    private static final String[] WORDS = {
+            "Acme", "Apex", "Atlas", "Blue", "Bright", "Cedar", "Coastal", "Crest", "Delta", "Eagle",
+            "Evergreen", "Falcon", "Global", "Granite", "Harbor", "Horizon", "Indigo", "Jade", "Keystone", "Lotus",
+            "Maple", "Meridian", "Nova", "Oak", "Orion", "Pacific", "Pinnacle", "Quantum", "River", "Sapphire",
+            "Silver", "Summit", "Sun", "Titan", "Union", "Vertex", "Vista", "West", "Zenith", "Zephyr"};
+    private static final String[] SUFFIXES = {"Traders", "Logistics", "Foods", "Textiles", "Systems", "Pharma", "Motors", "Labs"};
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final int DISCOVER_PAGE_SIZE = 200;
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<Long> clientIds = new ArrayList<>();
+    private final List<Long> invoiceIds = new ArrayList<>();
+
+    LoadClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        // HTTP/1.1 so each worker holds one kept-alive connection, like a browser or a proxy would
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    // Creates clients one request at a time and invoices through the batch endpoint
+    void seed(int clients, int invoices, Random random) throws IOException, InterruptedException {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < clients; i++) {
+            ObjectNode client = mapper.createObjectNode();
+            client.put("name", WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + SUFFIXES[random.nextInt(SUFFIXES.length)]);
+            client.put("email", "client" + i + "." + run + "@loadtest.example");
+            client.put("city", WORDS[random.nextInt(WORDS.length)] + "pur");
+            client.put("country", "India");
+            JsonNode created = send(post("/api/clients", client), 201);
+            clientIds.add(created.get("id").asLong());
+        }
+        if (clientIds.isEmpty()) {
+            discoverClients();
+        }
+
+        for (int start = 0; start < invoices; start += SEED_BATCH_SIZE) {
+            ArrayNode batch = mapper.createArrayNode();
+            for (int i = start; i < Math.min(invoices, start + SEED_BATCH_SIZE); i++) {
+                batch.add(invoiceBody(random));
+            }
+            JsonNode result = send(post("/api/invoices/batch", batch), 200);
+            for (JsonNode created : result.get("created")) {
+                invoiceIds.add(created.get("id").asLong());
+            }
+        }
+        if (invoiceIds.isEmpty()) {
+            discoverInvoices(invoices == 0 ? 20 * DISCOVER_PAGE_SIZE : invoices);
+        }
+        if (clientIds.isEmpty() || invoiceIds.isEmpty()) {
+            throw new IllegalStateException("Target has no clients or invoices to run against; seed some first");
+        }
+    }
+
+    int clientCount() {
+        return clientIds.size();
+    }
+
+    int invoiceCount() {
+        return invoiceIds.size();
+    }
+
+    // Returns whether the call succeeded; the response body is read in full but not kept
+    boolean execute(LoadHarness.Operation operation, Random random) throws IOException, InterruptedException {
+        HttpRequest request;
+        switch (operation) {
+            case CREATE:
+                request = post("/api/invoices", invoiceBody(random));
+                break;
+            case LIST:
+                request = get("/api/invoices/page?limit=50" + listFilter(random));
+                break;
+            case GET:
+                request = get("/api/invoices/" + pick(invoiceIds, random));
+                break;
+            case PDF:
+                request = get("/api/invoices/" + pick(invoiceIds, random) + "/pdf");
+                break;
+            case SEARCH:
+                request = get("/api/clients/search?size=20&term=" + encode(WORDS[random.nextInt(WORDS.length)]));
+                break;
+            case SUGGEST:
+                String word = WORDS[random.nextInt(WORDS.length)];
+                request = get("/api/clients/suggest?limit=10&prefix=" + encode(word.substring(0, 1 + random.nextInt(3))));
+                break;
+            case CLIENTS:
+                request = get("/api/clients");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    private ObjectNode invoiceBody(Random random) {
+        LocalDate invoiceDate = LocalDate.now().minusDays(random.nextInt(365));
+        ObjectNode invoice = mapper.createObjectNode();
+        invoice.putObject("client").put("id", pick(clientIds, random));
+        invoice.put("invoiceDate", invoiceDate.toString());
+        invoice.put("dueDate", invoiceDate.plusDays(30).toString());
+        invoice.put("taxRate", 18);
+        invoice.put("notes", "Load test");
+        ArrayNode items = invoice.putArray("items");
+        int itemCount = 1 + random.nextInt(10);
+        for (int i = 0; i < itemCount; i++) {
+            ObjectNode item = items.addObject();
+            item.put("description", "Consulting services, work package " + (i + 1));
+            item.put("quantity", 1 + random.nextInt(10));
+            item.put("unitPrice", (50 + random.nextInt(5000)) + "." + (10 + random.nextInt(90)));
+        }
+        return invoice;
+    }
+
+    private String listFilter(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "&clientId=" + pick(clientIds, random);
+            case 1:
+                return "&status=PENDING";
+            default:
+                return "";
+        }
+    }
+
+    private void discoverClients() throws IOException, InterruptedException {
+        for (JsonNode client : send(get("/api/clients"), 200)) {
+            clientIds.add(client.get("id").asLong());
+        }
+    }
+
+    private void discoverInvoices(int limit) throws IOException, InterruptedException {
+        String cursor = null;
+        do {
+            JsonNode page = send(get("/api/invoices/page?limit=" + DISCOVER_PAGE_SIZE
+                    + (cursor != null ? "&cursor=" + encode(cursor) : "")), 200);
+            for (JsonNode invoice : page.get("items")) {
+                invoiceIds.add(invoice.get("id").asLong());
+            }
+            cursor = page.get("hasMore").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null && invoiceIds.size() < limit);
+    }
+
+    private JsonNode send(HttpRequest request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IOException(request.method() + " " + request.uri() + " returned " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return mapper.readTree(response.body());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private HttpRequest post(String path, JsonNode body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private static long pick(List<Long> ids, Random random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
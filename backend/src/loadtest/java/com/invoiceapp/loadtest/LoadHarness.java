@@ -0,0 +1,223 @@
+package com.invoiceapp.loadtest;
+
+import com.invoiceapp.InvoiceGeneratorApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives the REST API with a weighted mix of invoice and client calls from a fixed number of worker threads
+// and reports latency percentiles and throughput per call. Unless loadtest.url points at a running instance
+// it boots the application in this JVM (H2 by default; program arguments go to Spring, so any datasource or
+// setting can be swapped in) and seeds it over the API first.
+//
+// Without loadtest.rate every worker issues its next call as soon as the last one returns. With it, calls are
+// scheduled at that total rate and latency is measured from the scheduled start, so a stall is charged to
+// every call it delayed instead of hiding behind the workers it blocked.
+public class LoadHarness {
+
+    enum Operation {
+        CREATE, LIST, GET, PDF, SEARCH, SUGGEST, CLIENTS
+    }
+
+    private static final String DEFAULT_MIX = "create:10,list:25,get:20,pdf:15,search:15,suggest:10,clients:5";
+
+    public static void main(String[] args) throws Exception {
+        String url = property("loadtest.url", "");
+        int threads = Integer.parseInt(property("loadtest.threads", "16"));
+        int warmupSeconds = Integer.parseInt(property("loadtest.warmup", "15"));
+        int durationSeconds = Integer.parseInt(property("loadtest.duration", "60"));
+        double rate = Double.parseDouble(property("loadtest.rate", "0"));
+        int clients = Integer.parseInt(property("loadtest.clients", "1000"));
+        int invoices = Integer.parseInt(property("loadtest.invoices", "20000"));
+        long seed = Long.parseLong(property("loadtest.seed", "42"));
+        String mix = property("loadtest.mix", DEFAULT_MIX);
+        String output = property("loadtest.output", "target/loadtest-result.json");
+        String baseline = property("loadtest.baseline", "");
+        Map<Operation, Integer> weights = parseMix(mix);
+
+        ConfigurableApplicationContext context = null;
+        String requestThreads = "unknown";
+        if (url.isEmpty()) {
+            context = SpringApplication.run(InvoiceGeneratorApplication.class, applicationArgs(args));
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            requestThreads = Threading.VIRTUAL.isActive(context.getEnvironment()) ? "virtual" : "platform";
+        }
+        try {
+            LoadClient client = new LoadClient(url);
+            long seedStart = System.nanoTime();
+            client.seed(clients, invoices, new Random(seed));
+            System.out.printf(Locale.ROOT, "Target %s (%s request threads): %d clients, %d invoices (seeded in %.1f s)%n",
+                    url, requestThreads, client.clientCount(), client.invoiceCount(), (System.nanoTime() - seedStart) / 1e9);
+
+            System.out.printf(Locale.ROOT, "Warming up for %d s with %d threads%n", warmupSeconds, threads);
+            run(client, weights, threads, rate, warmupSeconds, seed);
+            System.out.printf(Locale.ROOT, "Measuring for %d s with %d threads%s%n", durationSeconds, threads,
+                    rate > 0 ? String.format(Locale.ROOT, " at %.0f calls/s", rate) : "");
+            Map<Operation, LatencyRecorder> results = run(client, weights, threads, rate, durationSeconds, seed + threads);
+
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("url", url);
+            config.put("threads", threads);
+            config.put("durationSeconds", durationSeconds);
+            config.put("rate", rate);
+            config.put("clients", client.clientCount());
+            config.put("invoices", client.invoiceCount());
+            config.put("mix", mix);
+            config.put("applicationArgs", String.join(" ", args));
+            config.put("requestThreads", requestThreads);
+            config.put("javaVersion", Runtime.version().toString());
+            LoadReport report = new LoadReport(config, results, durationSeconds);
+            report.print(System.out);
+            report.write(output);
+            System.out.println("Results written to " + output);
+            if (!baseline.isEmpty()) {
+                report.compare(baseline, System.out);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static Map<Operation, LatencyRecorder> run(LoadClient client, Map<Operation, Integer> weights, int threads,
+                                                       double rate, int seconds, long seed) throws InterruptedException {
+        Operation[] operations = weights.keySet().toArray(new Operation[0]);
+        int[] cumulative = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += weights.get(operations[i]);
+            cumulative[i] = totalWeight;
+        }
+        int weightSum = totalWeight;
+
+        // Each worker records into its own recorders; they are merged after the phase ends
+        List<Map<Operation, LatencyRecorder>> perWorker = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long interval = rate > 0 ? (long) (threads * 1e9 / rate) : 0;
+        for (int t = 0; t < threads; t++) {
+            Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+            for (Operation operation : operations) {
+                recorders.put(operation, new LatencyRecorder());
+            }
+            perWorker.add(recorders);
+            Random random = new Random(seed + t);
+            // Stagger scheduled starts so the workers do not fire in lockstep
+            long firstStart = start + (interval * t) / threads;
+            Thread worker = new Thread(() -> {
+                try {
+                    long scheduled = firstStart;
+                    while (true) {
+                        long callStart = System.nanoTime();
+                        if (interval > 0) {
+                            if (scheduled >= end) {
+                                break;
+                            }
+                            if (scheduled > callStart) {
+                                LockSupport.parkNanos(scheduled - callStart);
+                            }
+                            callStart = scheduled;
+                            scheduled += interval;
+                        } else if (callStart >= end) {
+                            break;
+                        }
+                        int pick = random.nextInt(weightSum);
+                        int index = 0;
+                        while (cumulative[index] <= pick) {
+                            index++;
+                        }
+                        LatencyRecorder recorder = recorders.get(operations[index]);
+                        try {
+                            if (client.execute(operations[index], random)) {
+                                recorder.record(System.nanoTime() - callStart);
+                            } else {
+                                recorder.recordError();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            recorder.recordError();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-worker-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        // Calls in flight at the end may run up to the request timeout
+        if (!done.await(seconds + 120, TimeUnit.SECONDS)) {
+            System.out.println("Some workers did not finish; their last calls are not counted");
+        }
+
+        Map<Operation, LatencyRecorder> merged = new EnumMap<>(Operation.class);
+        for (Operation operation : operations) {
+            LatencyRecorder total = new LatencyRecorder();
+            for (Map<Operation, LatencyRecorder> recorders : perWorker) {
+                total.merge(recorders.get(operation));
+            }
+            merged.put(operation, total);
+        }
+        return merged;
+    }
+
+    // "create:10,list:25" -> weights in mix order; operations left out are not called
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like operation:weight, got '" + part + "'");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no operation with a positive weight");
+        }
+        return weights;
+    }
+
+    // Harness defaults for the embedded application, overridden by any --key=value the caller passes
+    private static String[] applicationArgs(String[] args) {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("server.port", "0");
+        defaults.put("spring.jpa.show-sql", "false");
+        defaults.put("spring.h2.console.enabled", "false");
+        defaults.put("logging.level.root", "WARN");
+        List<String> merged = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                defaults.remove(arg.substring(2, arg.indexOf('=')));
+            }
+            merged.add(arg);
+        }
+        for (Map.Entry<String, String> entry : defaults.entrySet()) {
+            merged.add("--" + entry.getKey() + "=" + entry.getValue());
+        }
+        return merged.toArray(new String[0]);
+    }
+
+    // Unset and empty both mean the default, so the Maven profile can pass every property through
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
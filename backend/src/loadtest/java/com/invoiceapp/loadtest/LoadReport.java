@@ -0,0 +1,101 @@
+package com.invoiceapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Per-operation results of one measured run: a table on the console, a JSON file to keep, and the change
+// against an earlier run's file
+final class LoadReport {
+
+    private static final String ROW = "%-8s %9s %7s %9s %9s %9s %9s %9s %9s%n";
+
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Map<String, Object> config;
+    private final Map<String, LatencyRecorder.Summary> summaries = new LinkedHashMap<>();
+
+    LoadReport(Map<String, Object> config, Map<LoadHarness.Operation, LatencyRecorder> results, double seconds) {
+        this.config = config;
+        LatencyRecorder total = new LatencyRecorder();
+        for (Map.Entry<LoadHarness.Operation, LatencyRecorder> entry : results.entrySet()) {
+            summaries.put(entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue().summarize(seconds));
+            total.merge(entry.getValue());
+        }
+        summaries.put("total", total.summarize(seconds));
+    }
+
+    void print(PrintStream out) {
+        out.printf(ROW, "", "calls", "errors", "calls/s", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, LatencyRecorder.Summary> entry : summaries.entrySet()) {
+            LatencyRecorder.Summary s = entry.getValue();
+            out.printf(ROW, entry.getKey(), s.count, s.errors, format(s.throughput), format(s.mean),
+                    format(s.p50), format(s.p95), format(s.p99), format(s.max));
+        }
+    }
+
+    void write(String path) throws IOException {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyRecorder.Summary> entry : summaries.entrySet()) {
+            LatencyRecorder.Summary s = entry.getValue();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", s.count);
+            values.put("errors", s.errors);
+            values.put("throughput", s.throughput);
+            values.put("meanMs", s.mean);
+            values.put("p50Ms", s.p50);
+            values.put("p95Ms", s.p95);
+            values.put("p99Ms", s.p99);
+            values.put("maxMs", s.max);
+            operations.put(entry.getKey(), values);
+        }
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("finishedAt", OffsetDateTime.now().toString());
+        document.put("config", config);
+        document.put("operations", operations);
+        File file = new File(path);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        mapper.writeValue(file, document);
+    }
+
+    // Relative change per operation; positive throughput and negative latency changes are improvements
+    void compare(String baselinePath, PrintStream out) throws IOException {
+        JsonNode document = mapper.readTree(new File(baselinePath));
+        JsonNode baseline = document.get("operations");
+        JsonNode baselineThreads = document.path("config").get("requestThreads");
+        out.println("Change against " + baselinePath
+                + (baselineThreads != null ? " (" + baselineThreads.asText() + " request threads)" : ""));
+        out.printf(ROW, "", "", "", "calls/s", "mean", "p50", "p95", "p99", "max");
+        for (Map.Entry<String, LatencyRecorder.Summary> entry : summaries.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            LatencyRecorder.Summary s = entry.getValue();
+            out.printf(ROW, entry.getKey(), "", "",
+                    change(before.get("throughput"), s.throughput), change(before.get("meanMs"), s.mean),
+                    change(before.get("p50Ms"), s.p50), change(before.get("p95Ms"), s.p95),
+                    change(before.get("p99Ms"), s.p99), change(before.get("maxMs"), s.max));
+        }
+    }
+
+    private static String change(JsonNode before, double after) {
+        if (before == null || before.asDouble() == 0) {
+            return "n/a";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (after / before.asDouble() - 1) * 100);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, value >= 100 ? "%.0f" : "%.1f", value);
+    }
+}
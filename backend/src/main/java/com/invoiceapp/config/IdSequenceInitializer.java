@@ -0,0 +1,47 @@
+package com.invoiceapp.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+// Moves the id sequences past ids that were generated by IDENTITY columns before the entities
+// switched to pooled sequences, so existing PostgreSQL databases keep working after upgrade.
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+
+    private static final String[][] SEQUENCES = {
+            {"clients", "clients_seq"},
+            {"invoices", "invoices_seq"},
+            {"invoice_items", "invoice_items_seq"}
+    };
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PostConstruct
+    public void alignSequences() throws Exception {
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if (!"PostgreSQL".equals(product)) {
+            return;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String[] sequence : SEQUENCES) {
+            String table = sequence[0];
+            String sequenceName = sequence[1];
+            jdbcTemplate.queryForList(
+                    "SELECT setval('" + sequenceName + "', m.max_id + " + ALLOCATION_SIZE + ") " +
+                    "FROM (SELECT COALESCE(MAX(id), 0) AS max_id FROM " + table + ") m, " + sequenceName + " s " +
+                    "WHERE s.last_value < m.max_id");
+        }
+    }
+}
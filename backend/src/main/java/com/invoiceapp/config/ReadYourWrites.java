@@ -0,0 +1,64 @@
+package com.invoiceapp.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Keeps a caller's reads on the primary for a while after it commits a write, so it does not read the write back
+// from a replica that has not applied it yet. The pin is held on the thread for the rest of the request and sent
+// back in a cookie that ReadYourWritesFilter picks up on the caller's next requests. Threads outside a request
+// (schedulers, outbox and export workers) are never pinned, since nothing would clear the pin before the thread
+// moved on to unrelated work.
+public final class ReadYourWrites {
+
+    static final String COOKIE = "primary-pin";
+
+    private static final ThreadLocal<Long> pinnedUntil = new ThreadLocal<>();
+    private static final ThreadLocal<HttpServletResponse> currentResponse = new ThreadLocal<>();
+
+    // Until when this node's own writes may be missing on the replica, for caches filled from replica reads
+    private static volatile long replicaStaleUntil;
+
+    private ReadYourWrites() {}
+
+    public static boolean isPinned() {
+        Long until = pinnedUntil.get();
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    public static boolean replicaMayBeStale() {
+        return replicaStaleUntil > System.currentTimeMillis();
+    }
+
+    // Call once a transaction that changed rows has committed
+    static void recordWrite(long windowMs) {
+        long until = System.currentTimeMillis() + windowMs;
+        if (until > replicaStaleUntil) {
+            replicaStaleUntil = until;
+        }
+        HttpServletResponse response = currentResponse.get();
+        if (response == null) {
+            pinnedUntil.remove();
+            return;
+        }
+        pinnedUntil.set(until);
+        if (!response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (windowMs + 999) / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    static void bind(HttpServletResponse response, long until) {
+        currentResponse.set(response);
+        if (until > System.currentTimeMillis()) {
+            pinnedUntil.set(until);
+        }
+    }
+
+    static void clear() {
+        currentResponse.remove();
+        pinnedUntil.remove();
+    }
+}
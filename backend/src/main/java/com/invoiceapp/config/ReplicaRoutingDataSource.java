@@ -0,0 +1,131 @@
+package com.invoiceapp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Sends read-only transactions to the replica and everything else, writes and statements outside a transaction,
+// to the primary. Read-only transactions of a caller pinned by a recent write stay on the primary as well. Used
+// behind a LazyConnectionDataSourceProxy, so the choice is made at the first statement, once the transaction's
+// read-only flag is known.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final long readYourWritesMs;
+
+    public ReplicaRoutingDataSource(long readYourWritesMs) {
+        this.readYourWritesMs = readYourWritesMs;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return ReadYourWrites.isPinned() ? PRIMARY : REPLICA;
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trackWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return trackWrites(super.getConnection(username, password));
+    }
+
+    // A read-write transaction records a write when it commits only if one of its statements changed rows, so
+    // transactions that just read, and updates that match nothing such as the outbox's stale-claim sweep, neither
+    // pin the caller nor mark the replica stale
+    private Connection trackWrites(Connection connection) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return connection;
+        }
+        WriteTracker tracker = new WriteTracker();
+        TransactionSynchronizationManager.registerSynchronization(tracker);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement && method.getReturnType().isInterface()
+                            && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return trackStatement((Statement) result, method.getReturnType(), tracker);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object trackStatement(Statement statement, Class<?> type, WriteTracker tracker) {
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = invoke(statement, method, args);
+            switch (method.getName()) {
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    if (((Number) result).longValue() > 0) {
+                        tracker.written = true;
+                    }
+                    break;
+                case "executeBatch":
+                    for (int count : (int[]) result) {
+                        // Drivers may report SUCCESS_NO_INFO rather than a row count
+                        tracker.written |= count != 0;
+                    }
+                    break;
+                case "executeLargeBatch":
+                    for (long count : (long[]) result) {
+                        tracker.written |= count != 0;
+                    }
+                    break;
+                case "execute":
+                    // No result set means an update count; reading it here would consume it, so assume rows changed
+                    tracker.written |= !(Boolean) result;
+                    break;
+                default:
+                    break;
+            }
+            return result;
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class WriteTracker implements TransactionSynchronization {
+        private volatile boolean written;
+
+        @Override
+        public void afterCommit() {
+            if (written) {
+                ReadYourWrites.recordWrite(readYourWritesMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.invoiceapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// The scheduler's thread count is spring.task.scheduling.pool.size; Boot's default of one thread would run the
+// outbox poll, the overdue sweep and the dashboard and client summary reconciles one after another
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,71 @@
+package com.invoiceapp.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Regions of the Hibernate second-level cache, created up front on a local Caffeine JCache so each one is
+// bounded; Hibernate is set to fail on any region not declared here rather than create an unbounded one.
+@Configuration
+public class SecondLevelCacheConfig {
+
+    private static final String CLIENT_REGION = "com.invoiceapp.entity.Client";
+    private static final String INVOICE_REGION = "com.invoiceapp.entity.Invoice";
+    private static final String INVOICE_NATURAL_ID_REGION = "com.invoiceapp.entity.Invoice##NaturalId";
+    private static final String INVOICE_ITEMS_REGION = "com.invoiceapp.entity.Invoice.items";
+    private static final String INVOICE_ITEM_REGION = "com.invoiceapp.entity.InvoiceItem";
+
+    private static final AtomicInteger MANAGERS = new AtomicInteger();
+
+    @Value("${invoice.l2-cache.client-entries:10000}")
+    private long clientEntries;
+
+    @Value("${invoice.l2-cache.invoice-entries:20000}")
+    private long invoiceEntries;
+
+    @Value("${invoice.l2-cache.item-entries:100000}")
+    private long itemEntries;
+
+    @Value("${invoice.l2-cache.expire-after-write-ms:600000}")
+    private long expireAfterWriteMs;
+
+    // Each context gets a manager under its own URI rather than the provider's JVM-wide default one, where a
+    // second context (a test with another configuration, say) would find the regions already created. Any URI
+    // other than a file or classpath one still reads the provider's default settings. Closed with the context.
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        URI uri = URI.create("invoiceapp:l2-cache:" + MANAGERS.incrementAndGet());
+        CacheManager cacheManager = provider.getCacheManager(uri, getClass().getClassLoader());
+        createRegion(cacheManager, CLIENT_REGION, clientEntries);
+        createRegion(cacheManager, INVOICE_REGION, invoiceEntries);
+        createRegion(cacheManager, INVOICE_NATURAL_ID_REGION, invoiceEntries);
+        createRegion(cacheManager, INVOICE_ITEMS_REGION, invoiceEntries);
+        createRegion(cacheManager, INVOICE_ITEM_REGION, itemEntries);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private void createRegion(CacheManager cacheManager, String name, long maximumSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMs)));
+        cacheManager.createCache(name, configuration);
+    }
+}
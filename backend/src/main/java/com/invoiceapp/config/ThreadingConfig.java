@@ -0,0 +1,31 @@
+package com.invoiceapp.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// spring.threads.virtual.enabled moves Tomcat's request threads, the application task executor (which runs
+// streamed downloads) and the scheduler onto virtual threads, but only on Java 21 or later; on an older
+// runtime Spring ignores it, so the mode in effect is logged at startup rather than left to guesswork.
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    @Autowired
+    private Environment environment;
+
+    @PostConstruct
+    void reportMode() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Serving requests and async tasks on virtual threads");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled is set, but Java {} has no virtual threads; using platform threads",
+                    Runtime.version().feature());
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.invoiceapp.controller;
 
+import com.invoiceapp.dto.ClientStats;
+import com.invoiceapp.dto.ClientSuggestion;
+import com.invoiceapp.dto.OffsetPage;
 import com.invoiceapp.entity.Client;
 import com.invoiceapp.service.ClientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,13 +20,40 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class ClientController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 25;
+
     @Autowired
     private ClientService clientService;
 
+    // A page at a time in id order, with the total in X-Total-Count like /search
     @GetMapping
-    public ResponseEntity<List<Client>> getAllClients() {
-        List<Client> clients = clientService.getAllClients();
-        return ResponseEntity.ok(clients);
+    public ResponseEntity<List<Client>> getClients(@RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "50") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Page<Client> clients = clientService.getClients(Math.max(0, page), pageSize);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(clients.getTotalElements()))
+                .body(clients.getContent());
+    }
+
+    // Clients with invoice count, outstanding and overdue totals and last invoice date, a page at a time
+    @GetMapping("/page")
+    public ResponseEntity<?> getClientPage(@RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "50") int size,
+                                           @RequestParam(defaultValue = "name") String sort,
+                                           @RequestParam(defaultValue = "asc") String direction) {
+        try {
+            if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+                throw new IllegalArgumentException("Direction must be asc or desc");
+            }
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            OffsetPage<ClientStats> clients = clientService.getClientStatsPage(sort, direction.equalsIgnoreCase("asc"),
+                    Math.max(0, page), pageSize);
+            return ResponseEntity.ok(clients);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error listing clients: " + e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
@@ -33,9 +64,21 @@ public class ClientController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Client>> searchClients(@RequestParam String term) {
-        List<Client> clients = clientService.searchClients(term);
-        return ResponseEntity.ok(clients);
+    public ResponseEntity<List<Client>> searchClients(@RequestParam String term,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Page<Client> clients = clientService.searchClients(term, Math.max(0, page), pageSize);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(clients.getTotalElements()))
+                .body(clients.getContent());
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ClientSuggestion>> suggestClients(@RequestParam String prefix,
+                                                                 @RequestParam(defaultValue = "10") int limit) {
+        List<ClientSuggestion> suggestions = clientService.suggestClients(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+        return ResponseEntity.ok(suggestions);
     }
 
     @PostMapping
@@ -0,0 +1,35 @@
+package com.invoiceapp.controller;
+
+import com.invoiceapp.dto.SmtpStats;
+import com.invoiceapp.entity.EmailOutboxMessage;
+import com.invoiceapp.service.EmailOutboxService;
+import com.invoiceapp.service.SmtpTransportPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/emails")
+@CrossOrigin(origins = "http://localhost:4200")
+public class EmailOutboxController {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private SmtpTransportPool smtpTransportPool;
+
+    @GetMapping("/smtp-stats")
+    public ResponseEntity<SmtpStats> getSmtpStats() {
+        return ResponseEntity.ok(smtpTransportPool.getStats());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<EmailOutboxMessage> getMessage(@PathVariable Long id) {
+        Optional<EmailOutboxMessage> message = emailOutboxService.getMessage(id);
+        return message.map(ResponseEntity::ok)
+                     .orElse(ResponseEntity.notFound().build());
+    }
+}
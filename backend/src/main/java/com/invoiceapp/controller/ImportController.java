@@ -0,0 +1,44 @@
+package com.invoiceapp.controller;
+
+import com.invoiceapp.dto.ImportProgress;
+import com.invoiceapp.dto.ImportResult;
+import com.invoiceapp.service.CsvImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/import")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ImportController {
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    // Either file may be sent alone; invoice rows refer to clients by email. A caller-chosen importId lets
+    // another request poll the progress endpoint while this one is still uploading rows.
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importCsv(@RequestParam(value = "clients", required = false) MultipartFile clients,
+                                       @RequestParam(value = "invoices", required = false) MultipartFile invoices,
+                                       @RequestParam(value = "importId", required = false) String importId) {
+        if ((clients == null || clients.isEmpty()) && (invoices == null || invoices.isEmpty())) {
+            return ResponseEntity.badRequest().body("Error importing: upload a 'clients' or 'invoices' CSV file");
+        }
+        try {
+            ImportResult result = csvImportService.importCsv(clients, invoices, importId);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error importing: " + e.getMessage());
+        }
+    }
+
+    // 404 once the import has finished; its POST response carries the final counts
+    @GetMapping("/{importId}/progress")
+    public ResponseEntity<ImportProgress> getProgress(@PathVariable String importId) {
+        return csvImportService.getProgress(importId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,18 +1,30 @@
 package com.invoiceapp.controller;
 
+import com.invoiceapp.dto.CursorPage;
+import com.invoiceapp.dto.InvoiceBatchResult;
+import com.invoiceapp.dto.InvoiceFilter;
+import com.invoiceapp.dto.InvoiceSummary;
+import com.invoiceapp.dto.InvoiceVersion;
+import com.invoiceapp.entity.EmailOutboxMessage;
 import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.service.InvoiceExportService;
 import com.invoiceapp.service.InvoiceService;
+import com.invoiceapp.service.PdfCache;
 import com.invoiceapp.service.PdfService;
-import com.invoiceapp.service.EmailService;
+import com.invoiceapp.service.EmailOutboxService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -22,6 +34,8 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:4200")
 public class InvoiceController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private InvoiceService invoiceService;
 
@@ -29,7 +43,10 @@ public class InvoiceController {
     private PdfService pdfService;
 
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private InvoiceExportService invoiceExportService;
 
     @GetMapping
     public ResponseEntity<List<Invoice>> getAllInvoices() {
@@ -37,6 +54,24 @@ public class InvoiceController {
         return ResponseEntity.ok(invoices);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<?> getInvoicePage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Invoice.PaymentStatus status,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            InvoiceFilter filter = new InvoiceFilter(status, clientId, startDate, endDate);
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            CursorPage<InvoiceSummary> page = invoiceService.getInvoicePage(filter, cursor, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error listing invoices: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Invoice> getInvoiceById(@PathVariable Long id) {
         Optional<Invoice> invoice = invoiceService.getInvoiceById(id);
@@ -87,6 +122,16 @@ public class InvoiceController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> createInvoices(@RequestBody List<Invoice> invoices) {
+        try {
+            InvoiceBatchResult result = invoiceService.createInvoices(invoices);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error creating invoices: " + e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateInvoice(@PathVariable Long id, @Valid @RequestBody Invoice invoiceDetails) {
         try {
@@ -124,65 +169,136 @@ public class InvoiceController {
     }
 
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> downloadInvoicePdf(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadInvoicePdf(@PathVariable Long id, WebRequest request) {
         try {
-            Optional<Invoice> invoiceOpt = invoiceService.getInvoiceById(id);
-            if (invoiceOpt.isEmpty()) {
+            Optional<InvoiceVersion> versionOpt = pdfService.getInvoiceVersion(id);
+            if (versionOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
 
-            Invoice invoice = invoiceOpt.get();
-            byte[] pdfBytes = pdfService.generateInvoicePdf(invoice);
+            // The ETag is the version tag, so a client holding the current copy gets a 304 without a render
+            InvoiceVersion version = versionOpt.get();
+            String etag = "\"" + PdfCache.tag(version) + "\"";
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "Invoice_" + invoice.getInvoiceNumber() + ".pdf");
+            headers.setContentDispositionFormData("attachment", "Invoice_" + version.getInvoiceNumber() + ".pdf");
+
+            StreamingResponseBody body;
+            byte[] cached = pdfService.getCachedPdf(version);
+            if (cached != null) {
+                headers.setContentLength(cached.length);
+                body = out -> out.write(cached);
+            } else {
+                // Load before streaming starts so a missing invoice can still be answered with a 404. Only a cache
+                // miss pays for this second SELECT: the version lookup above is kept separate so 304s and cache
+                // hits are answered from one narrow query instead of loading the invoice with all of its items.
+                Optional<Invoice> invoiceOpt = invoiceService.getInvoiceById(id);
+                if (invoiceOpt.isEmpty()) {
+                    return ResponseEntity.notFound().build();
+                }
+                Invoice invoice = invoiceOpt.get();
+                body = out -> pdfService.writeInvoicePdf(invoice, out);
+            }
 
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(pdfBytes);
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(body);
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping("/export/pdf.zip")
+    public ResponseEntity<StreamingResponseBody> exportInvoicePdfs(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Invoice.PaymentStatus status,
+            @RequestParam(required = false) Long clientId) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            byte[] message = "Error exporting invoices: startDate is after endDate".getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+        }
+        InvoiceFilter filter = new InvoiceFilter(status, clientId, startDate, endDate);
+        StreamingResponseBody body = out -> invoiceExportService.writePdfZip(filter, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "invoices.zip");
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoiceData(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Invoice.PaymentStatus status,
+            @RequestParam(required = false) Long clientId) {
+        InvoiceExportService.DataFormat dataFormat;
+        if ("csv".equalsIgnoreCase(format)) {
+            dataFormat = InvoiceExportService.DataFormat.CSV;
+        } else if ("jsonl".equalsIgnoreCase(format)) {
+            dataFormat = InvoiceExportService.DataFormat.JSONL;
+        } else {
+            byte[] message = "Error exporting invoices: format must be csv or jsonl".getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+        }
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            byte[] message = "Error exporting invoices: startDate is after endDate".getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+        }
+        InvoiceFilter filter = new InvoiceFilter(status, clientId, startDate, endDate);
+        StreamingResponseBody body = out -> invoiceExportService.writeData(filter, dataFormat, out);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (dataFormat == InvoiceExportService.DataFormat.CSV) {
+            headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+            headers.setContentDispositionFormData("attachment", "invoices.csv");
+        } else {
+            headers.setContentType(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8));
+            headers.setContentDispositionFormData("attachment", "invoices.jsonl");
+        }
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
     @PostMapping("/{id}/send-email")
     public ResponseEntity<?> sendInvoiceEmail(@PathVariable Long id, 
                                             @RequestParam(required = false) String toEmail,
                                             @RequestParam(required = false) String subject,
                                             @RequestParam(required = false) String body) {
         try {
-            Optional<Invoice> invoiceOpt = invoiceService.getInvoiceById(id);
-            if (invoiceOpt.isEmpty()) {
+            if (!invoiceService.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
 
-            Invoice invoice = invoiceOpt.get();
-            String email = toEmail != null ? toEmail : invoice.getClient().getEmail();
-            
-            emailService.sendInvoiceEmail(invoice, email, subject, body);
-            return ResponseEntity.ok().body("Invoice email sent successfully");
+            // Sent in the background; the message can be followed at /api/emails/{messageId}
+            EmailOutboxMessage message = emailOutboxService.enqueueInvoiceEmail(id, toEmail, subject, body);
+            return ResponseEntity.accepted().body(message);
 
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error sending email: " + e.getMessage());
+            return ResponseEntity.badRequest().body("Error queueing email: " + e.getMessage());
         }
     }
 
     @PostMapping("/{id}/send-reminder")
     public ResponseEntity<?> sendPaymentReminder(@PathVariable Long id) {
         try {
-            Optional<Invoice> invoiceOpt = invoiceService.getInvoiceById(id);
-            if (invoiceOpt.isEmpty()) {
+            if (!invoiceService.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
 
-            Invoice invoice = invoiceOpt.get();
-            emailService.sendPaymentReminder(invoice);
-            return ResponseEntity.ok().body("Payment reminder sent successfully");
+            EmailOutboxMessage message = emailOutboxService.enqueueReminder(id);
+            return ResponseEntity.accepted().body(message);
 
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error sending reminder: " + e.getMessage());
+            return ResponseEntity.badRequest().body("Error queueing reminder: " + e.getMessage());
         }
     }
 }
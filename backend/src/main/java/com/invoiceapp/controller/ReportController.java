@@ -0,0 +1,74 @@
+package com.invoiceapp.controller;
+
+import com.invoiceapp.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ReportController {
+
+    private static final int MAX_CLIENT_LIMIT = 500;
+
+    @Autowired
+    private ReportService reportService;
+
+    // Months as yyyy-MM; defaults to the last twelve months including the current one
+    @GetMapping("/revenue/monthly")
+    public ResponseEntity<?> getMonthlyRevenue(
+            @RequestParam(required = false) String startMonth,
+            @RequestParam(required = false) String endMonth) {
+        try {
+            YearMonth end = endMonth != null ? YearMonth.parse(endMonth) : YearMonth.now();
+            YearMonth start = startMonth != null ? YearMonth.parse(startMonth) : end.minusMonths(11);
+            return ResponseEntity.ok(reportService.getMonthlyRevenue(start, end));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("Error generating report: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/revenue/by-client")
+    public ResponseEntity<?> getRevenueByClient(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            LocalDate end = endDate != null ? endDate : LocalDate.now();
+            LocalDate start = startDate != null ? startDate : end.minusYears(1).plusDays(1);
+            int clampedLimit = Math.max(1, Math.min(limit, MAX_CLIENT_LIMIT));
+            return ResponseEntity.ok(reportService.getRevenueByClient(start, end, clampedLimit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("Error generating report: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/aging")
+    public ResponseEntity<?> getAging(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        try {
+            return ResponseEntity.ok(reportService.getAging(asOf != null ? asOf : LocalDate.now()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("Error generating report: " + e.getMessage());
+        }
+    }
+
+    // Defaults to the 90 days ending today
+    @GetMapping("/dso")
+    public ResponseEntity<?> getDso(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            LocalDate end = endDate != null ? endDate : LocalDate.now();
+            LocalDate start = startDate != null ? startDate : end.minusDays(89);
+            return ResponseEntity.ok(reportService.getDso(start, end));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("Error generating report: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.invoiceapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class AgingReport {
+    private LocalDate asOf;
+    private List<Bucket> buckets;
+    private long invoiceCount;
+    private BigDecimal outstanding;
+
+    // Open invoices grouped by days past their due date
+    public static class Bucket {
+        private String label;
+        private long invoiceCount;
+        private BigDecimal amount;
+
+        public Bucket(String label, long invoiceCount, BigDecimal amount) {
+            this.label = label;
+            this.invoiceCount = invoiceCount;
+            this.amount = amount;
+        }
+
+        public String getLabel() { return label; }
+        public long getInvoiceCount() { return invoiceCount; }
+        public BigDecimal getAmount() { return amount; }
+    }
+
+    // Constructors
+    public AgingReport() {}
+
+    public AgingReport(LocalDate asOf, List<Bucket> buckets) {
+        this.asOf = asOf;
+        this.buckets = buckets;
+        this.outstanding = BigDecimal.ZERO;
+        for (Bucket bucket : buckets) {
+            this.invoiceCount += bucket.getInvoiceCount();
+            this.outstanding = this.outstanding.add(bucket.getAmount());
+        }
+    }
+
+    // Getters and Setters
+    public LocalDate getAsOf() { return asOf; }
+    public void setAsOf(LocalDate asOf) { this.asOf = asOf; }
+
+    public List<Bucket> getBuckets() { return buckets; }
+    public void setBuckets(List<Bucket> buckets) { this.buckets = buckets; }
+
+    public long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(long invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public BigDecimal getOutstanding() { return outstanding; }
+    public void setOutstanding(BigDecimal outstanding) { this.outstanding = outstanding; }
+}
@@ -0,0 +1,43 @@
+package com.invoiceapp.dto;
+
+import java.math.BigDecimal;
+
+public class ClientRevenue {
+    private Long clientId;
+    private String clientName;
+    private long invoiceCount;
+    private BigDecimal invoiced;
+    private BigDecimal paid;
+    private BigDecimal outstanding;
+
+    // Constructors
+    public ClientRevenue() {}
+
+    public ClientRevenue(Long clientId, String clientName, long invoiceCount, BigDecimal invoiced, BigDecimal paid) {
+        this.clientId = clientId;
+        this.clientName = clientName;
+        this.invoiceCount = invoiceCount;
+        this.invoiced = invoiced;
+        this.paid = paid;
+        this.outstanding = invoiced.subtract(paid);
+    }
+
+    // Getters and Setters
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+
+    public String getClientName() { return clientName; }
+    public void setClientName(String clientName) { this.clientName = clientName; }
+
+    public long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(long invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public BigDecimal getInvoiced() { return invoiced; }
+    public void setInvoiced(BigDecimal invoiced) { this.invoiced = invoiced; }
+
+    public BigDecimal getPaid() { return paid; }
+    public void setPaid(BigDecimal paid) { this.paid = paid; }
+
+    public BigDecimal getOutstanding() { return outstanding; }
+    public void setOutstanding(BigDecimal outstanding) { this.outstanding = outstanding; }
+}
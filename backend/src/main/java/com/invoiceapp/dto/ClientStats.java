@@ -0,0 +1,55 @@
+package com.invoiceapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class ClientStats {
+    private Long clientId;
+    private String name;
+    private String email;
+    private String phone;
+    private Long invoiceCount;
+    private BigDecimal outstanding;
+    private BigDecimal overdue;
+    private LocalDate lastInvoiceDate;
+
+    // Constructors
+    public ClientStats() {}
+
+    public ClientStats(Long clientId, String name, String email, String phone, Long invoiceCount,
+                       BigDecimal outstanding, BigDecimal overdue, LocalDate lastInvoiceDate) {
+        this.clientId = clientId;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.invoiceCount = invoiceCount;
+        this.outstanding = outstanding;
+        this.overdue = overdue;
+        this.lastInvoiceDate = lastInvoiceDate;
+    }
+
+    // Getters and Setters
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getPhone() { return phone; }
+    public void setPhone(String phone) { this.phone = phone; }
+
+    public Long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(Long invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public BigDecimal getOutstanding() { return outstanding; }
+    public void setOutstanding(BigDecimal outstanding) { this.outstanding = outstanding; }
+
+    public BigDecimal getOverdue() { return overdue; }
+    public void setOverdue(BigDecimal overdue) { this.overdue = overdue; }
+
+    public LocalDate getLastInvoiceDate() { return lastInvoiceDate; }
+    public void setLastInvoiceDate(LocalDate lastInvoiceDate) { this.lastInvoiceDate = lastInvoiceDate; }
+}
@@ -0,0 +1,33 @@
+package com.invoiceapp.dto;
+
+import java.time.LocalDateTime;
+
+public class ClientSuggestion {
+    private Long id;
+    private String name;
+    private String email;
+    private LocalDateTime lastInvoicedAt;
+
+    // Constructors
+    public ClientSuggestion() {}
+
+    public ClientSuggestion(Long id, String name, String email, LocalDateTime lastInvoicedAt) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.lastInvoicedAt = lastInvoicedAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public LocalDateTime getLastInvoicedAt() { return lastInvoicedAt; }
+    public void setLastInvoicedAt(LocalDateTime lastInvoicedAt) { this.lastInvoicedAt = lastInvoicedAt; }
+}
@@ -0,0 +1,40 @@
+package com.invoiceapp.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class DashboardSummary {
+    private long totalInvoices;
+    private long pendingInvoices;
+    private BigDecimal totalRevenue;
+    private long totalClients;
+    private List<InvoiceSummary> recentInvoices;
+
+    // Constructors
+    public DashboardSummary() {}
+
+    public DashboardSummary(long totalInvoices, long pendingInvoices, BigDecimal totalRevenue,
+                            long totalClients, List<InvoiceSummary> recentInvoices) {
+        this.totalInvoices = totalInvoices;
+        this.pendingInvoices = pendingInvoices;
+        this.totalRevenue = totalRevenue;
+        this.totalClients = totalClients;
+        this.recentInvoices = recentInvoices;
+    }
+
+    // Getters and Setters
+    public long getTotalInvoices() { return totalInvoices; }
+    public void setTotalInvoices(long totalInvoices) { this.totalInvoices = totalInvoices; }
+
+    public long getPendingInvoices() { return pendingInvoices; }
+    public void setPendingInvoices(long pendingInvoices) { this.pendingInvoices = pendingInvoices; }
+
+    public BigDecimal getTotalRevenue() { return totalRevenue; }
+    public void setTotalRevenue(BigDecimal totalRevenue) { this.totalRevenue = totalRevenue; }
+
+    public long getTotalClients() { return totalClients; }
+    public void setTotalClients(long totalClients) { this.totalClients = totalClients; }
+
+    public List<InvoiceSummary> getRecentInvoices() { return recentInvoices; }
+    public void setRecentInvoices(List<InvoiceSummary> recentInvoices) { this.recentInvoices = recentInvoices; }
+}
@@ -0,0 +1,45 @@
+package com.invoiceapp.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class DsoReport {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private long days;
+    private BigDecimal sales;
+    private BigDecimal receivables;
+    private BigDecimal dso;
+
+    // Constructors
+    public DsoReport() {}
+
+    public DsoReport(LocalDate startDate, LocalDate endDate, long days, BigDecimal sales,
+                     BigDecimal receivables, BigDecimal dso) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.days = days;
+        this.sales = sales;
+        this.receivables = receivables;
+        this.dso = dso;
+    }
+
+    // Getters and Setters
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+
+    public long getDays() { return days; }
+    public void setDays(long days) { this.days = days; }
+
+    public BigDecimal getSales() { return sales; }
+    public void setSales(BigDecimal sales) { this.sales = sales; }
+
+    public BigDecimal getReceivables() { return receivables; }
+    public void setReceivables(BigDecimal receivables) { this.receivables = receivables; }
+
+    public BigDecimal getDso() { return dso; }
+    public void setDso(BigDecimal dso) { this.dso = dso; }
+}
@@ -0,0 +1,29 @@
+package com.invoiceapp.dto;
+
+public class EmailSendResult {
+    private boolean sent;
+    private String error;
+
+    // Constructors
+    public EmailSendResult() {}
+
+    public EmailSendResult(boolean sent, String error) {
+        this.sent = sent;
+        this.error = error;
+    }
+
+    public static EmailSendResult success() {
+        return new EmailSendResult(true, null);
+    }
+
+    public static EmailSendResult failure(String error) {
+        return new EmailSendResult(false, error);
+    }
+
+    // Getters and Setters
+    public boolean isSent() { return sent; }
+    public void setSent(boolean sent) { this.sent = sent; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
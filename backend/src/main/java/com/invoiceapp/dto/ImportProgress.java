@@ -0,0 +1,42 @@
+package com.invoiceapp.dto;
+
+// Snapshot of a running import, replaced after every chunk so a poll never sees counts from half a chunk
+public class ImportProgress {
+    private String file;
+    private long rows;
+    private long created;
+    private long skipped;
+    private long failed;
+    private long elapsedMs;
+
+    // Constructors
+    public ImportProgress() {}
+
+    public ImportProgress(String file, long rows, long created, long skipped, long failed, long elapsedMs) {
+        this.file = file;
+        this.rows = rows;
+        this.created = created;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.elapsedMs = elapsedMs;
+    }
+
+    // Getters and Setters
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+
+    public long getRows() { return rows; }
+    public void setRows(long rows) { this.rows = rows; }
+
+    public long getCreated() { return created; }
+    public void setCreated(long created) { this.created = created; }
+
+    public long getSkipped() { return skipped; }
+    public void setSkipped(long skipped) { this.skipped = skipped; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+}
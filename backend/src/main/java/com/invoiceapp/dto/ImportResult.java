@@ -0,0 +1,53 @@
+package com.invoiceapp.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResult {
+    private Section clients = new Section();
+    private Section invoices = new Section();
+    private long elapsedMs;
+
+    // Counts for one uploaded file; errors carry the CSV line the failing record started on
+    public static class Section {
+        private long rows;
+        private long created;
+        private long skipped;
+        private long failed;
+        private List<RowError> errors = new ArrayList<>();
+        private boolean errorsTruncated;
+
+        public void addRows(long count) { rows += count; }
+        public void addCreated(long count) { created += count; }
+        public void addSkipped(long count) { skipped += count; }
+
+        public void addError(long line, String message, int maxErrors) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError((int) line, message));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+
+        public long getRows() { return rows; }
+        public long getCreated() { return created; }
+        public long getSkipped() { return skipped; }
+        public long getFailed() { return failed; }
+        public List<RowError> getErrors() { return errors; }
+        public boolean isErrorsTruncated() { return errorsTruncated; }
+    }
+
+    // Constructors
+    public ImportResult() {}
+
+    // Getters and Setters
+    public Section getClients() { return clients; }
+    public void setClients(Section clients) { this.clients = clients; }
+
+    public Section getInvoices() { return invoices; }
+    public void setInvoices(Section invoices) { this.invoices = invoices; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+}
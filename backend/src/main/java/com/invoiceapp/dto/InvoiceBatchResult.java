@@ -0,0 +1,55 @@
+package com.invoiceapp.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InvoiceBatchResult {
+    private int requested;
+    private List<CreatedInvoice> created = new ArrayList<>();
+    private List<RowError> errors = new ArrayList<>();
+
+    public static class CreatedInvoice {
+        private int row;
+        private Long id;
+        private String invoiceNumber;
+
+        public CreatedInvoice(int row, Long id, String invoiceNumber) {
+            this.row = row;
+            this.id = id;
+            this.invoiceNumber = invoiceNumber;
+        }
+
+        public int getRow() { return row; }
+        public Long getId() { return id; }
+        public String getInvoiceNumber() { return invoiceNumber; }
+    }
+
+    // Constructors
+    public InvoiceBatchResult() {}
+
+    public InvoiceBatchResult(int requested) {
+        this.requested = requested;
+    }
+
+    public void addCreated(int row, Long id, String invoiceNumber) {
+        created.add(new CreatedInvoice(row, id, invoiceNumber));
+    }
+
+    public void addError(int row, String message) {
+        errors.add(new RowError(row, message));
+    }
+
+    // Getters and Setters
+    public int getRequested() { return requested; }
+    public void setRequested(int requested) { this.requested = requested; }
+
+    public int getCreatedCount() { return created.size(); }
+
+    public int getFailedCount() { return errors.size(); }
+
+    public List<CreatedInvoice> getCreated() { return created; }
+    public void setCreated(List<CreatedInvoice> created) { this.created = created; }
+
+    public List<RowError> getErrors() { return errors; }
+    public void setErrors(List<RowError> errors) { this.errors = errors; }
+}
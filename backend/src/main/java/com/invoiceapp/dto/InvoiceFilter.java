@@ -0,0 +1,35 @@
+package com.invoiceapp.dto;
+
+import com.invoiceapp.entity.Invoice;
+
+import java.time.LocalDate;
+
+public class InvoiceFilter {
+    private Invoice.PaymentStatus status;
+    private Long clientId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // Constructors
+    public InvoiceFilter() {}
+
+    public InvoiceFilter(Invoice.PaymentStatus status, Long clientId, LocalDate startDate, LocalDate endDate) {
+        this.status = status;
+        this.clientId = clientId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    // Getters and Setters
+    public Invoice.PaymentStatus getStatus() { return status; }
+    public void setStatus(Invoice.PaymentStatus status) { this.status = status; }
+
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+}
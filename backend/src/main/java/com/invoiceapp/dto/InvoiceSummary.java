@@ -0,0 +1,58 @@
+package com.invoiceapp.dto;
+
+import com.invoiceapp.entity.Invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class InvoiceSummary {
+    private Long id;
+    private String invoiceNumber;
+    private Long clientId;
+    private String clientName;
+    private LocalDate invoiceDate;
+    private LocalDate dueDate;
+    private BigDecimal total;
+    private Invoice.PaymentStatus paymentStatus;
+
+    // Constructors
+    public InvoiceSummary() {}
+
+    public InvoiceSummary(Long id, String invoiceNumber, Long clientId, String clientName,
+                          LocalDate invoiceDate, LocalDate dueDate, BigDecimal total,
+                          Invoice.PaymentStatus paymentStatus) {
+        this.id = id;
+        this.invoiceNumber = invoiceNumber;
+        this.clientId = clientId;
+        this.clientName = clientName;
+        this.invoiceDate = invoiceDate;
+        this.dueDate = dueDate;
+        this.total = total;
+        this.paymentStatus = paymentStatus;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getInvoiceNumber() { return invoiceNumber; }
+    public void setInvoiceNumber(String invoiceNumber) { this.invoiceNumber = invoiceNumber; }
+
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+
+    public String getClientName() { return clientName; }
+    public void setClientName(String clientName) { this.clientName = clientName; }
+
+    public LocalDate getInvoiceDate() { return invoiceDate; }
+    public void setInvoiceDate(LocalDate invoiceDate) { this.invoiceDate = invoiceDate; }
+
+    public LocalDate getDueDate() { return dueDate; }
+    public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+
+    public BigDecimal getTotal() { return total; }
+    public void setTotal(BigDecimal total) { this.total = total; }
+
+    public Invoice.PaymentStatus getPaymentStatus() { return paymentStatus; }
+    public void setPaymentStatus(Invoice.PaymentStatus paymentStatus) { this.paymentStatus = paymentStatus; }
+}
@@ -0,0 +1,34 @@
+package com.invoiceapp.dto;
+
+import java.time.LocalDateTime;
+
+// The columns that change whenever anything printed on an invoice changes
+public class InvoiceVersion {
+    private Long id;
+    private String invoiceNumber;
+    private LocalDateTime updatedAt;
+    private LocalDateTime clientUpdatedAt;
+
+    // Constructors
+    public InvoiceVersion() {}
+
+    public InvoiceVersion(Long id, String invoiceNumber, LocalDateTime updatedAt, LocalDateTime clientUpdatedAt) {
+        this.id = id;
+        this.invoiceNumber = invoiceNumber;
+        this.updatedAt = updatedAt;
+        this.clientUpdatedAt = clientUpdatedAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getInvoiceNumber() { return invoiceNumber; }
+    public void setInvoiceNumber(String invoiceNumber) { this.invoiceNumber = invoiceNumber; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getClientUpdatedAt() { return clientUpdatedAt; }
+    public void setClientUpdatedAt(LocalDateTime clientUpdatedAt) { this.clientUpdatedAt = clientUpdatedAt; }
+}
@@ -0,0 +1,38 @@
+package com.invoiceapp.dto;
+
+import java.math.BigDecimal;
+
+public class MonthlyRevenue {
+    private String month;
+    private long invoiceCount;
+    private BigDecimal invoiced;
+    private BigDecimal paid;
+    private BigDecimal outstanding;
+
+    // Constructors
+    public MonthlyRevenue() {}
+
+    public MonthlyRevenue(String month, long invoiceCount, BigDecimal invoiced, BigDecimal paid) {
+        this.month = month;
+        this.invoiceCount = invoiceCount;
+        this.invoiced = invoiced;
+        this.paid = paid;
+        this.outstanding = invoiced.subtract(paid);
+    }
+
+    // Getters and Setters
+    public String getMonth() { return month; }
+    public void setMonth(String month) { this.month = month; }
+
+    public long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(long invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public BigDecimal getInvoiced() { return invoiced; }
+    public void setInvoiced(BigDecimal invoiced) { this.invoiced = invoiced; }
+
+    public BigDecimal getPaid() { return paid; }
+    public void setPaid(BigDecimal paid) { this.paid = paid; }
+
+    public BigDecimal getOutstanding() { return outstanding; }
+    public void setOutstanding(BigDecimal outstanding) { this.outstanding = outstanding; }
+}
@@ -0,0 +1,38 @@
+package com.invoiceapp.dto;
+
+import java.util.List;
+
+public class OffsetPage<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private long totalItems;
+    private int totalPages;
+
+    // Constructors
+    public OffsetPage() {}
+
+    public OffsetPage(List<T> items, int page, int size, long totalItems) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.totalItems = totalItems;
+        this.totalPages = (int) ((totalItems + size - 1) / size);
+    }
+
+    // Getters and Setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public long getTotalItems() { return totalItems; }
+    public void setTotalItems(long totalItems) { this.totalItems = totalItems; }
+
+    public int getTotalPages() { return totalPages; }
+    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+}
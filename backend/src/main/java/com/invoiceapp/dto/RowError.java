@@ -0,0 +1,21 @@
+package com.invoiceapp.dto;
+
+public class RowError {
+    private int row;
+    private String message;
+
+    // Constructors
+    public RowError() {}
+
+    public RowError(int row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    // Getters and Setters
+    public int getRow() { return row; }
+    public void setRow(int row) { this.row = row; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
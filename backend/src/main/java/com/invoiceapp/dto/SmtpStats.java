@@ -0,0 +1,36 @@
+package com.invoiceapp.dto;
+
+public class SmtpStats {
+    private long handshakes;
+    private long messagesSent;
+    private long failedSends;
+    private long handshakesSaved;
+    private int idleConnections;
+
+    // Constructors
+    public SmtpStats() {}
+
+    public SmtpStats(long handshakes, long messagesSent, long failedSends, long handshakesSaved, int idleConnections) {
+        this.handshakes = handshakes;
+        this.messagesSent = messagesSent;
+        this.failedSends = failedSends;
+        this.handshakesSaved = handshakesSaved;
+        this.idleConnections = idleConnections;
+    }
+
+    // Getters and Setters
+    public long getHandshakes() { return handshakes; }
+    public void setHandshakes(long handshakes) { this.handshakes = handshakes; }
+
+    public long getMessagesSent() { return messagesSent; }
+    public void setMessagesSent(long messagesSent) { this.messagesSent = messagesSent; }
+
+    public long getFailedSends() { return failedSends; }
+    public void setFailedSends(long failedSends) { this.failedSends = failedSends; }
+
+    public long getHandshakesSaved() { return handshakesSaved; }
+    public void setHandshakesSaved(long handshakesSaved) { this.handshakesSaved = handshakesSaved; }
+
+    public int getIdleConnections() { return idleConnections; }
+    public void setIdleConnections(int idleConnections) { this.idleConnections = idleConnections; }
+}
@@ -0,0 +1,70 @@
+package com.invoiceapp.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Per-client invoice figures kept up to date by invoice writes, so the client list can be sorted by them
+// without grouping the invoices table. Each sort column is indexed together with the client id tiebreak.
+@Entity
+@Table(name = "client_summaries", indexes = {
+        @Index(name = "idx_client_summaries_invoice_count", columnList = "invoice_count, client_id"),
+        @Index(name = "idx_client_summaries_outstanding", columnList = "outstanding, client_id"),
+        @Index(name = "idx_client_summaries_overdue", columnList = "overdue, client_id"),
+        @Index(name = "idx_client_summaries_last_invoice_date", columnList = "last_invoice_date, client_id")
+})
+public class ClientSummary {
+    @Id
+    private Long clientId;
+
+    @Column(nullable = false)
+    private Long invoiceCount = 0L;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal outstanding = BigDecimal.ZERO;
+
+    // Unpaid and past due as of the last refresh; the overdue sweep refreshes a client when one of its invoices
+    // falls due
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal overdue = BigDecimal.ZERO;
+
+    private LocalDate lastInvoiceDate;
+
+    private LocalDateTime refreshedAt;
+
+    // Constructors
+    public ClientSummary() {}
+
+    public ClientSummary(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    public ClientSummary(Long clientId, Long invoiceCount, BigDecimal outstanding, BigDecimal overdue,
+                         LocalDate lastInvoiceDate) {
+        this.clientId = clientId;
+        this.invoiceCount = invoiceCount;
+        this.outstanding = outstanding;
+        this.overdue = overdue;
+        this.lastInvoiceDate = lastInvoiceDate;
+    }
+
+    // Getters and Setters
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+
+    public Long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(Long invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public BigDecimal getOutstanding() { return outstanding; }
+    public void setOutstanding(BigDecimal outstanding) { this.outstanding = outstanding; }
+
+    public BigDecimal getOverdue() { return overdue; }
+    public void setOverdue(BigDecimal overdue) { this.overdue = overdue; }
+
+    public LocalDate getLastInvoiceDate() { return lastInvoiceDate; }
+    public void setLastInvoiceDate(LocalDate lastInvoiceDate) { this.lastInvoiceDate = lastInvoiceDate; }
+
+    public LocalDateTime getRefreshedAt() { return refreshedAt; }
+    public void setRefreshedAt(LocalDateTime refreshedAt) { this.refreshedAt = refreshedAt; }
+}
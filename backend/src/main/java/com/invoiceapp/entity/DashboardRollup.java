@@ -0,0 +1,59 @@
+package com.invoiceapp.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "dashboard_rollups")
+public class DashboardRollup {
+    public static final Long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long invoiceCount = 0L;
+
+    @Column(nullable = false)
+    private Long pendingCount = 0L;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal paidRevenue = BigDecimal.ZERO;
+
+    // Clients that have at least one invoice
+    @Column(nullable = false)
+    private Long customerCount = 0L;
+
+    private LocalDateTime rebuiltAt;
+
+    // Constructors
+    public DashboardRollup() {}
+
+    public DashboardRollup(Long invoiceCount, Long pendingCount, BigDecimal paidRevenue, Long customerCount) {
+        this.id = SINGLETON_ID;
+        this.invoiceCount = invoiceCount;
+        this.pendingCount = pendingCount;
+        this.paidRevenue = paidRevenue;
+        this.customerCount = customerCount;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(Long invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public Long getPendingCount() { return pendingCount; }
+    public void setPendingCount(Long pendingCount) { this.pendingCount = pendingCount; }
+
+    public BigDecimal getPaidRevenue() { return paidRevenue; }
+    public void setPaidRevenue(BigDecimal paidRevenue) { this.paidRevenue = paidRevenue; }
+
+    public Long getCustomerCount() { return customerCount; }
+    public void setCustomerCount(Long customerCount) { this.customerCount = customerCount; }
+
+    public LocalDateTime getRebuiltAt() { return rebuiltAt; }
+    public void setRebuiltAt(LocalDateTime rebuiltAt) { this.rebuiltAt = rebuiltAt; }
+}
@@ -2,22 +2,41 @@ package com.invoiceapp.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.invoiceapp.money.InvoiceTotals;
+import com.invoiceapp.money.MoneyCalculator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "invoices")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@NamedEntityGraph(name = "Invoice.detail", attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode("items")
+})
+@Table(name = "invoices", indexes = {
+        @Index(name = "idx_invoices_invoice_date_id", columnList = "invoice_date, id"),
+        @Index(name = "idx_invoices_client_id", columnList = "client_id"),
+        @Index(name = "idx_invoices_status_due_date", columnList = "payment_status, due_date, id")
+})
 public class Invoice {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoices_seq")
+    @SequenceGenerator(name = "invoices_seq", sequenceName = "invoices_seq", allocationSize = 50)
     private Long id;
 
+    @NaturalId
     @Column(unique = true, nullable = false)
     private String invoiceNumber;
 
@@ -32,6 +51,7 @@ public class Invoice {
     private LocalDate dueDate;
 
     @OneToMany(mappedBy = "invoice", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonManagedReference
     private List<InvoiceItem> items;
 
@@ -86,12 +106,14 @@ public class Invoice {
     // Business logic methods
     public void calculateTotals() {
         if (items != null && !items.isEmpty()) {
-            subtotal = items.stream()
-                    .map(InvoiceItem::getTotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            taxAmount = subtotal.multiply(taxRate.divide(BigDecimal.valueOf(100)));
-            total = subtotal.add(taxAmount);
+            InvoiceTotals totals = MoneyCalculator.DEFAULT.newTotals();
+            for (InvoiceItem item : items) {
+                totals.addLine(item.getQuantity(), item.getUnitPrice(), item.getDiscountPercent(),
+                        item.getTaxRate() != null ? item.getTaxRate() : taxRate);
+            }
+            subtotal = totals.getSubtotal();
+            taxAmount = totals.getTaxAmount();
+            total = totals.getTotal();
         }
     }
 
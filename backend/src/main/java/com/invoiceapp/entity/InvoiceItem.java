@@ -1,17 +1,25 @@
 package com.invoiceapp.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.invoiceapp.money.MoneyCalculator;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "invoice_items")
 public class InvoiceItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_items_seq")
+    @SequenceGenerator(name = "invoice_items_seq", sequenceName = "invoice_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -33,6 +41,18 @@ public class InvoiceItem {
     @Column(precision = 10, scale = 2)
     private BigDecimal unitPrice;
 
+    // Percent off quantity x unit price; no discount when null
+    @DecimalMin(value = "0", message = "Discount must not be negative")
+    @DecimalMax(value = "100", message = "Discount must not exceed 100 percent")
+    @Column(precision = 5, scale = 2)
+    private BigDecimal discountPercent;
+
+    // Tax rate for this line; the invoice's rate applies when null
+    @DecimalMin(value = "0", message = "Tax rate must not be negative")
+    @Column(precision = 5, scale = 2)
+    private BigDecimal taxRate;
+
+    // Net of the discount, before tax
     @Column(precision = 10, scale = 2)
     private BigDecimal total;
 
@@ -49,7 +69,7 @@ public class InvoiceItem {
     // Business logic
     public void calculateTotal() {
         if (quantity != null && unitPrice != null) {
-            this.total = quantity.multiply(unitPrice);
+            this.total = MoneyCalculator.DEFAULT.lineTotal(quantity, unitPrice, discountPercent);
         }
     }
 
@@ -81,6 +101,15 @@ public class InvoiceItem {
         calculateTotal();
     }
 
+    public BigDecimal getDiscountPercent() { return discountPercent; }
+    public void setDiscountPercent(BigDecimal discountPercent) {
+        this.discountPercent = discountPercent;
+        calculateTotal();
+    }
+
+    public BigDecimal getTaxRate() { return taxRate; }
+    public void setTaxRate(BigDecimal taxRate) { this.taxRate = taxRate; }
+
     public BigDecimal getTotal() { return total; }
     public void setTotal(BigDecimal total) { this.total = total; }
 }
@@ -0,0 +1,30 @@
+package com.invoiceapp.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "invoice_sequences")
+public class InvoiceSequence {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    // Next sequence value that has not yet been handed out to any node
+    @Column(nullable = false)
+    private Long nextValue;
+
+    // Constructors
+    public InvoiceSequence() {}
+
+    public InvoiceSequence(String name, Long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+}
@@ -0,0 +1,91 @@
+package com.invoiceapp.money;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+// Running totals of one invoice. Line nets are summed per tax rate, as scaled longs while they fit and exactly
+// otherwise, so tax is applied once per distinct rate rather than once per line. Results are exact until read,
+// then rounded: subtotal, tax and total each from the exact sums, as the amount columns would round them.
+// Not thread-safe; take a new one per calculation from MoneyCalculator.newTotals().
+public final class InvoiceTotals {
+
+    private final MoneyCalculator calculator;
+    private BigDecimal[] rates = new BigDecimal[2];
+    private long[] scaledNets = new long[2];
+    private BigDecimal[] exactNets = new BigDecimal[2];
+    private int rateCount;
+
+    InvoiceTotals(MoneyCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    // A line without quantity or unit price adds nothing; a null tax rate counts as zero
+    public void addLine(BigDecimal quantity, BigDecimal unitPrice, BigDecimal discountPercent, BigDecimal taxRate) {
+        if (quantity == null || unitPrice == null) {
+            return;
+        }
+        int slot = slot(taxRate == null ? BigDecimal.ZERO : taxRate);
+        long net = MoneyCalculator.scaledNet(quantity, unitPrice, discountPercent);
+        if (net != MoneyCalculator.NOT_SCALED) {
+            try {
+                scaledNets[slot] = Math.addExact(scaledNets[slot], net);
+                return;
+            } catch (ArithmeticException e) {
+                // The running sum no longer fits; the line goes to the exact sum below
+            }
+        }
+        BigDecimal exact = MoneyCalculator.exactNet(quantity, unitPrice, discountPercent);
+        exactNets[slot] = exactNets[slot] == null ? exact : exactNets[slot].add(exact);
+    }
+
+    public BigDecimal getSubtotal() {
+        return calculator.round(exactSubtotal());
+    }
+
+    public BigDecimal getTaxAmount() {
+        return calculator.round(exactTax());
+    }
+
+    public BigDecimal getTotal() {
+        return calculator.round(exactSubtotal().add(exactTax()));
+    }
+
+    private BigDecimal exactSubtotal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < rateCount; i++) {
+            subtotal = subtotal.add(net(i));
+        }
+        return subtotal;
+    }
+
+    private BigDecimal exactTax() {
+        BigDecimal tax = BigDecimal.ZERO;
+        for (int i = 0; i < rateCount; i++) {
+            if (rates[i].signum() != 0) {
+                tax = tax.add(net(i).multiply(rates[i]).movePointLeft(2));
+            }
+        }
+        return tax;
+    }
+
+    private BigDecimal net(int slot) {
+        BigDecimal net = BigDecimal.valueOf(scaledNets[slot], MoneyCalculator.NET_SCALE);
+        return exactNets[slot] == null ? net : net.add(exactNets[slot]);
+    }
+
+    // Invoices carry one rate or a handful, so a linear scan beats hashing BigDecimals
+    private int slot(BigDecimal rate) {
+        for (int i = 0; i < rateCount; i++) {
+            if (rates[i].compareTo(rate) == 0) {
+                return i;
+            }
+        }
+        if (rateCount == rates.length) {
+            rates = Arrays.copyOf(rates, rateCount * 2);
+            scaledNets = Arrays.copyOf(scaledNets, rateCount * 2);
+            exactNets = Arrays.copyOf(exactNets, rateCount * 2);
+        }
+        rates[rateCount] = rate;
+        return rateCount++;
+    }
+}
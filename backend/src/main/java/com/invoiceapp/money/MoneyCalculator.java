@@ -0,0 +1,152 @@
+package com.invoiceapp.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+// Invoice arithmetic on scaled longs. Quantities, unit prices and discount percents with up to two decimals are
+// carried as integers, so a line costs a few multiplications instead of a chain of BigDecimal objects; values
+// with finer digits, or lines too large for a long, take an exact BigDecimal path instead. Nothing is rounded
+// until a result is read, and then once, to the currency's minor unit.
+public final class MoneyCalculator {
+
+    // Two decimals, half up: the scale of the amount columns and the rounding the database applies to them
+    public static final MoneyCalculator DEFAULT = new MoneyCalculator(2, RoundingMode.HALF_UP);
+
+    // Decimals read from quantities, unit prices and discount percents on the long path
+    static final int INPUT_SCALE = 2;
+    // Line net amounts: quantity x unit price x (100 - discount percent) / 100, which adds up to four times INPUT_SCALE
+    static final int NET_SCALE = 4 * INPUT_SCALE;
+    static final long NOT_SCALED = Long.MIN_VALUE;
+
+    private static final long[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+    private static final long FULL_PERCENT = 100 * POW10[INPUT_SCALE];
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final int fractionDigits;
+    private final RoundingMode roundingMode;
+
+    public MoneyCalculator(int fractionDigits, RoundingMode roundingMode) {
+        if (fractionDigits < 0 || fractionDigits > NET_SCALE) {
+            throw new IllegalArgumentException("Fraction digits must be between 0 and " + NET_SCALE);
+        }
+        this.fractionDigits = fractionDigits;
+        this.roundingMode = roundingMode;
+    }
+
+    public static MoneyCalculator forCurrency(Currency currency) {
+        int digits = currency.getDefaultFractionDigits();
+        if (digits < 0) {
+            throw new IllegalArgumentException(currency.getCurrencyCode() + " has no minor unit");
+        }
+        return new MoneyCalculator(digits, RoundingMode.HALF_UP);
+    }
+
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
+
+    public RoundingMode getRoundingMode() {
+        return roundingMode;
+    }
+
+    public InvoiceTotals newTotals() {
+        return new InvoiceTotals(this);
+    }
+
+    // Quantity x unit price less the discount, rounded; null when quantity or price is missing
+    public BigDecimal lineTotal(BigDecimal quantity, BigDecimal unitPrice, BigDecimal discountPercent) {
+        if (quantity == null || unitPrice == null) {
+            return null;
+        }
+        long net = scaledNet(quantity, unitPrice, discountPercent);
+        if (net != NOT_SCALED) {
+            return BigDecimal.valueOf(round(net, NET_SCALE), fractionDigits);
+        }
+        return round(exactNet(quantity, unitPrice, discountPercent));
+    }
+
+    public BigDecimal round(BigDecimal amount) {
+        return amount == null ? null : amount.setScale(fractionDigits, roundingMode);
+    }
+
+    // Line net at NET_SCALE, or NOT_SCALED when an input has finer digits or the product does not fit
+    static long scaledNet(BigDecimal quantity, BigDecimal unitPrice, BigDecimal discountPercent) {
+        long q = scaled(quantity);
+        long p = scaled(unitPrice);
+        long d = discountPercent == null ? 0 : scaled(discountPercent);
+        if (q == NOT_SCALED || p == NOT_SCALED || d == NOT_SCALED) {
+            return NOT_SCALED;
+        }
+        try {
+            return Math.multiplyExact(Math.multiplyExact(q, p), FULL_PERCENT - d);
+        } catch (ArithmeticException e) {
+            return NOT_SCALED;
+        }
+    }
+
+    static BigDecimal exactNet(BigDecimal quantity, BigDecimal unitPrice, BigDecimal discountPercent) {
+        BigDecimal gross = quantity.multiply(unitPrice);
+        if (discountPercent == null || discountPercent.signum() == 0) {
+            return gross;
+        }
+        return gross.multiply(HUNDRED.subtract(discountPercent)).movePointLeft(2);
+    }
+
+    // Rounds a value held at the given scale to fractionDigits and returns it at that scale
+    long round(long value, int scale) {
+        int drop = scale - fractionDigits;
+        if (drop == 0) {
+            return value;
+        }
+        long divisor = POW10[drop];
+        long quotient = value / divisor;
+        long remainder = value % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = value < 0 ? -1 : 1;
+        long twice = Math.abs(remainder) * 2;
+        boolean awayFromZero;
+        switch (roundingMode) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = twice >= divisor;
+                break;
+            case HALF_DOWN:
+                awayFromZero = twice > divisor;
+                break;
+            case HALF_EVEN:
+                awayFromZero = twice > divisor || (twice == divisor && (quotient & 1) != 0);
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+
+    // value x 10^INPUT_SCALE as a long, or NOT_SCALED. unscaledValue() would allocate a BigInteger per call;
+    // doubleValue() of a small compact value does not, and below 2^50 (15 digits) the division it does and the
+    // multiplication here each round by under a quarter unit, so Math.round recovers the unscaled value exactly.
+    private static long scaled(BigDecimal value) {
+        int scale = value.scale();
+        if (scale > INPUT_SCALE || scale < 0 || value.precision() > 15) {
+            return NOT_SCALED;
+        }
+        if (scale == 0) {
+            return value.longValue() * POW10[INPUT_SCALE];
+        }
+        return Math.round(value.doubleValue() * POW10[scale]) * POW10[INPUT_SCALE - scale];
+    }
+}
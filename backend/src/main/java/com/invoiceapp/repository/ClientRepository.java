@@ -1,16 +1,19 @@
 package com.invoiceapp.repository;
 
 import com.invoiceapp.entity.Client;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientRepositoryCustom {
     
     Optional<Client> findByEmail(String email);
     
@@ -19,5 +22,28 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     @Query("SELECT c FROM Client c WHERE c.name LIKE %:searchTerm% OR c.email LIKE %:searchTerm%")
     List<Client> searchClients(@Param("searchTerm") String searchTerm);
     
+    @Query("SELECT c FROM Client c WHERE c.name LIKE %:searchTerm% OR c.email LIKE %:searchTerm% ORDER BY c.name")
+    Page<Client> searchClients(@Param("searchTerm") String searchTerm, Pageable pageable);
+    
+    // id, name, email, phone and GST number in id order, for loading the search index
+    @Query("SELECT c.id, c.name, c.email, c.phone, c.gstNumber FROM Client c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findSearchFieldsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT c.id FROM Client c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT c.id, c.name, c.email FROM Client c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findNamesAndEmailsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // id, name and email of clients whose name or email starts with the lowercase prefix
+    @Query("SELECT c.id, c.name, c.email FROM Client c WHERE LOWER(c.name) LIKE :prefix% OR LOWER(c.email) LIKE :prefix% ORDER BY c.name")
+    List<Object[]> findNamesAndEmailsByPrefix(@Param("prefix") String prefix, Pageable pageable);
+    
     boolean existsByEmail(String email);
+    
+    @Query("SELECT c.email FROM Client c WHERE c.email IN :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+    
+    @Query("SELECT c.id, c.email FROM Client c WHERE c.email IN :emails")
+    List<Object[]> findIdsAndEmailsIn(@Param("emails") Collection<String> emails);
 }
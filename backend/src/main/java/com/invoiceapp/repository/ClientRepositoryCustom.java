@@ -0,0 +1,25 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.dto.ClientStats;
+import com.invoiceapp.entity.ClientSummary;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface ClientRepositoryCustom {
+
+    // Keys accepted by findStatsPage for ordering
+    Set<String> STATS_SORT_KEYS = Set.of("name", "email", "invoiceCount", "outstanding", "overdue", "lastInvoiceDate");
+
+    // One page of clients with their invoice count, unpaid total, unpaid total due before asOf and latest invoice
+    // date. The page of client ids is chosen first, from the clients table for name and email or from the
+    // client_summaries table for the invoice figures, and only those clients' invoices are then aggregated.
+    // Ties on the sort key are broken by client id.
+    List<ClientStats> findStatsPage(String sort, boolean ascending, LocalDate asOf, int offset, int limit);
+
+    // The figures stored in client_summaries, computed from the invoices of the given clients. Clients without
+    // invoices are left out.
+    List<ClientSummary> computeSummaries(Collection<Long> clientIds, LocalDate asOf);
+}
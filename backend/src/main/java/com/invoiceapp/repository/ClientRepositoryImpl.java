@@ -0,0 +1,88 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.dto.ClientStats;
+import com.invoiceapp.entity.ClientSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ClientRepositoryImpl implements ClientRepositoryCustom {
+
+    private static final String UNPAID = "i.paymentStatus IN (com.invoiceapp.entity.Invoice$PaymentStatus.PENDING, " +
+            "com.invoiceapp.entity.Invoice$PaymentStatus.OVERDUE)";
+    private static final String OUTSTANDING = "COALESCE(SUM(CASE WHEN " + UNPAID + " THEN i.total ELSE 0 END), 0)";
+    // Unpaid and past due, whether or not the overdue sweep has flagged it yet
+    private static final String OVERDUE = "COALESCE(SUM(CASE WHEN " + UNPAID + " AND i.dueDate < :asOf " +
+            "THEN i.total ELSE 0 END), 0)";
+
+    // Sort keys mapped to the table the page is read from and the column it is ordered by; only these reach the
+    // query text. Each pairs with an index ending in the id tiebreak.
+    private static final Map<String, String> SORT_QUERIES = Map.of(
+            "name", "SELECT c.id FROM Client c ORDER BY c.name%1$s, c.id%1$s",
+            "email", "SELECT c.id FROM Client c ORDER BY c.email%1$s, c.id%1$s",
+            "invoiceCount", "SELECT s.clientId FROM ClientSummary s ORDER BY s.invoiceCount%1$s, s.clientId%1$s",
+            "outstanding", "SELECT s.clientId FROM ClientSummary s ORDER BY s.outstanding%1$s, s.clientId%1$s",
+            "overdue", "SELECT s.clientId FROM ClientSummary s ORDER BY s.overdue%1$s, s.clientId%1$s",
+            // Clients without invoices have no last invoice date and go last either way
+            "lastInvoiceDate", "SELECT s.clientId FROM ClientSummary s " +
+                    "ORDER BY s.lastInvoiceDate%1$s NULLS LAST, s.clientId%1$s");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ClientStats> findStatsPage(String sort, boolean ascending, LocalDate asOf, int offset, int limit) {
+        String sortQuery = SORT_QUERIES.get(sort);
+        if (sortQuery == null) {
+            throw new IllegalArgumentException("Unknown sort '" + sort + "', expected one of " + STATS_SORT_KEYS);
+        }
+        List<Long> ids = entityManager.createQuery(String.format(sortQuery, ascending ? " ASC" : " DESC"), Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ClientStats> byId = new HashMap<>();
+        for (ClientStats stats : entityManager.createQuery(
+                        "SELECT new com.invoiceapp.dto.ClientStats(c.id, c.name, c.email, c.phone, COUNT(i), " +
+                        OUTSTANDING + ", " + OVERDUE + ", MAX(i.invoiceDate)) " +
+                        "FROM Client c LEFT JOIN c.invoices i WHERE c.id IN :ids " +
+                        "GROUP BY c.id, c.name, c.email, c.phone", ClientStats.class)
+                .setParameter("ids", ids)
+                .setParameter("asOf", asOf)
+                .getResultList()) {
+            byId.put(stats.getClientId(), stats);
+        }
+        // Back in page order; a summary row whose client was deleted in between has nothing to show
+        List<ClientStats> page = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ClientStats stats = byId.get(id);
+            if (stats != null) {
+                page.add(stats);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<ClientSummary> computeSummaries(Collection<Long> clientIds, LocalDate asOf) {
+        if (clientIds.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery(
+                        "SELECT new com.invoiceapp.entity.ClientSummary(i.client.id, COUNT(i), " +
+                        OUTSTANDING + ", " + OVERDUE + ", MAX(i.invoiceDate)) " +
+                        "FROM Invoice i WHERE i.client.id IN :clientIds GROUP BY i.client.id", ClientSummary.class)
+                .setParameter("clientIds", clientIds)
+                .setParameter("asOf", asOf)
+                .getResultList();
+    }
+}
@@ -0,0 +1,32 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.entity.ClientSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ClientSummaryRepository extends JpaRepository<ClientSummary, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ClientSummary s WHERE s.clientId IN :clientIds")
+    List<ClientSummary> findAllByIdForUpdate(@Param("clientIds") Collection<Long> clientIds);
+
+    // Ids of clients that have no summary row yet, in id order
+    @Query("SELECT c.id FROM Client c WHERE c.id > :afterId " +
+           "AND NOT EXISTS (SELECT s FROM ClientSummary s WHERE s.clientId = c.id) ORDER BY c.id")
+    List<Long> findClientIdsWithoutSummaryAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Rows left behind by clients deleted while their summary was being refreshed
+    @Modifying
+    @Query("DELETE FROM ClientSummary s WHERE NOT EXISTS (SELECT c FROM Client c WHERE c.id = s.clientId)")
+    int deleteOrphans();
+}
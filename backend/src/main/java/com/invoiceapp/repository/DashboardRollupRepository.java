@@ -0,0 +1,41 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.entity.DashboardRollup;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Repository
+public interface DashboardRollupRepository extends JpaRepository<DashboardRollup, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM DashboardRollup r WHERE r.id = :id")
+    Optional<DashboardRollup> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE DashboardRollup r SET r.invoiceCount = r.invoiceCount + :invoices, " +
+           "r.pendingCount = r.pendingCount + :pending, r.paidRevenue = r.paidRevenue + :paidRevenue, " +
+           "r.customerCount = r.customerCount + :customers WHERE r.id = :id")
+    int applyDelta(@Param("id") Long id, @Param("invoices") long invoices, @Param("pending") long pending,
+                   @Param("paidRevenue") BigDecimal paidRevenue, @Param("customers") long customers);
+
+    @Query("SELECT new com.invoiceapp.entity.DashboardRollup(COUNT(i), " +
+           "COALESCE(SUM(CASE WHEN i.paymentStatus = com.invoiceapp.entity.Invoice$PaymentStatus.PENDING THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN i.paymentStatus = com.invoiceapp.entity.Invoice$PaymentStatus.PAID THEN i.total ELSE 0 END), 0), " +
+           "COUNT(DISTINCT i.client.id)) FROM Invoice i")
+    DashboardRollup computeFromInvoices();
+
+    // The share of the figures contributed by one client's invoices
+    @Query("SELECT new com.invoiceapp.entity.DashboardRollup(COUNT(i), " +
+           "COALESCE(SUM(CASE WHEN i.paymentStatus = com.invoiceapp.entity.Invoice$PaymentStatus.PENDING THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN i.paymentStatus = com.invoiceapp.entity.Invoice$PaymentStatus.PAID THEN i.total ELSE 0 END), 0), " +
+           "COUNT(DISTINCT i.client.id)) FROM Invoice i WHERE i.client.id = :clientId")
+    DashboardRollup computeForClient(@Param("clientId") Long clientId);
+}
@@ -0,0 +1,49 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.entity.EmailOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    @Query("SELECT m.id FROM EmailOutboxMessage m " +
+           "WHERE m.status = com.invoiceapp.entity.EmailOutboxMessage$Status.PENDING AND m.nextAttemptAt <= :now " +
+           "ORDER BY m.nextAttemptAt")
+    List<Long> findIdsReadyToSend(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Conditional update so only one worker, on any node, wins a given message
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.invoiceapp.entity.EmailOutboxMessage$Status.SENDING, " +
+           "m.claimedAt = :now WHERE m.id = :id AND m.status = com.invoiceapp.entity.EmailOutboxMessage$Status.PENDING")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.invoiceapp.entity.EmailOutboxMessage$Status.PENDING, " +
+           "m.nextAttemptAt = :now WHERE m.status = com.invoiceapp.entity.EmailOutboxMessage$Status.SENDING " +
+           "AND m.claimedAt < :claimedBefore")
+    int releaseStale(@Param("claimedBefore") LocalDateTime claimedBefore, @Param("now") LocalDateTime now);
+
+    // Records a send's outcome only while the message still carries this send's claim; once a stale release
+    // has handed it back (and possibly to another worker) the row belongs to the newer attempt
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.attempts = :attempts, " +
+           "m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError, m.sentAt = :sentAt " +
+           "WHERE m.id = :id AND m.status = com.invoiceapp.entity.EmailOutboxMessage$Status.SENDING " +
+           "AND m.claimedAt = :claimedAt")
+    int complete(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("status") EmailOutboxMessage.Status status, @Param("attempts") int attempts,
+                 @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError,
+                 @Param("sentAt") LocalDateTime sentAt);
+}
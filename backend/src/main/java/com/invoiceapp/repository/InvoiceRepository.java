@@ -1,25 +1,55 @@
 package com.invoiceapp.repository;
 
+import com.invoiceapp.dto.InvoiceVersion;
 import com.invoiceapp.entity.Invoice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
-    
-    Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
+public interface InvoiceRepository extends JpaRepository<Invoice, Long>, InvoiceRepositoryCustom {
+
+    // Loads the invoice together with its client and items in one query
+    @EntityGraph("Invoice.detail")
+    @Query("SELECT i FROM Invoice i WHERE i.id = :id")
+    Optional<Invoice> findDetailById(@Param("id") Long id);
+
+    @EntityGraph("Invoice.detail")
+    @Query("SELECT i FROM Invoice i WHERE i.id IN :ids")
+    List<Invoice> findDetailByIdIn(@Param("ids") Collection<Long> ids);
     
+    @Query("SELECT new com.invoiceapp.dto.InvoiceVersion(i.id, i.invoiceNumber, i.updatedAt, c.updatedAt) " +
+           "FROM Invoice i JOIN i.client c WHERE i.id = :id")
+    Optional<InvoiceVersion> findVersionById(@Param("id") Long id);
+
     List<Invoice> findByClientId(Long clientId);
+
+    @Query("SELECT i.id FROM Invoice i WHERE i.client.id = :clientId")
+    List<Long> findIdsByClientId(@Param("clientId") Long clientId);
     
     List<Invoice> findByPaymentStatus(Invoice.PaymentStatus paymentStatus);
     
     List<Invoice> findByDueDateBefore(LocalDate date);
+
+    @EntityGraph("Invoice.detail")
+    @Query("SELECT i FROM Invoice i WHERE i.dueDate < :today AND i.paymentStatus IN " +
+           "(com.invoiceapp.entity.Invoice$PaymentStatus.PENDING, com.invoiceapp.entity.Invoice$PaymentStatus.OVERDUE)")
+    List<Invoice> findOverdue(@Param("today") LocalDate today);
+
+    // Set-based status change; bypasses @PreUpdate, so the caller supplies updatedAt
+    @Modifying
+    @Query("UPDATE Invoice i SET i.paymentStatus = :status, i.updatedAt = :updatedAt WHERE i.id IN :ids")
+    int updatePaymentStatus(@Param("ids") Collection<Long> ids, @Param("status") Invoice.PaymentStatus status,
+                            @Param("updatedAt") LocalDateTime updatedAt);
     
     @Query("SELECT i FROM Invoice i WHERE i.invoiceDate BETWEEN :startDate AND :endDate")
     List<Invoice> findByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
@@ -28,6 +58,17 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     List<Invoice> findByClientIdAndPaymentStatus(@Param("clientId") Long clientId, @Param("status") Invoice.PaymentStatus status);
     
     boolean existsByInvoiceNumber(String invoiceNumber);
+
+    boolean existsByClientIdAndIdNot(Long clientId, Long id);
+
+    @Query("SELECT i.invoiceNumber FROM Invoice i WHERE i.invoiceNumber IN :numbers")
+    List<String> findInvoiceNumbersIn(@Param("numbers") Collection<String> numbers);
+
+    @Query("SELECT i.client.id, COUNT(i) FROM Invoice i WHERE i.client.id IN :clientIds GROUP BY i.client.id")
+    List<Object[]> countByClientIds(@Param("clientIds") Collection<Long> clientIds);
+
+    @Query("SELECT i.client.id, MAX(i.createdAt) FROM Invoice i GROUP BY i.client.id")
+    List<Object[]> findLastCreatedAtByClient();
     
     @Query("SELECT COALESCE(MAX(CAST(SUBSTRING(i.invoiceNumber, 5) AS int)), 0) FROM Invoice i WHERE i.invoiceNumber LIKE 'INV-%'")
     Integer findMaxInvoiceSequence();
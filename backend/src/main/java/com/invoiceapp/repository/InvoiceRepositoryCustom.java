@@ -0,0 +1,30 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.dto.InvoiceFilter;
+import com.invoiceapp.dto.InvoiceSummary;
+import com.invoiceapp.entity.Invoice;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface InvoiceRepositoryCustom {
+
+    // Natural-id load: resolved through the second-level cache, so a repeated number costs no query
+    Optional<Invoice> loadByInvoiceNumber(String invoiceNumber);
+
+    // Keyset page ordered by (invoiceDate, id) descending, starting after the given position when present
+    List<InvoiceSummary> findSummaries(InvoiceFilter filter, LocalDate afterDate, Long afterId, int limit);
+
+    // Locks and returns {id, dueDate, clientId} of invoices in the given status due before a date, keyset ordered by (dueDate, id)
+    List<Object[]> lockByStatusDueBefore(Invoice.PaymentStatus status, LocalDate dueBefore,
+                                         LocalDate afterDueDate, Long afterId, int limit);
+
+    // Streams one row per line item, or one per invoice without items, ordered by invoice id then item id:
+    // {invoiceId, invoiceNumber, invoiceDate, dueDate, paymentStatus, clientId, clientName, clientEmail,
+    //  subtotal, taxRate, taxAmount, total, itemId, description, quantity, unitPrice, itemTotal,
+    //  itemDiscountPercent, itemTaxRate}.
+    // Must be consumed and closed inside a transaction.
+    Stream<Object[]> streamExportRows(InvoiceFilter filter, int fetchSize);
+}
@@ -0,0 +1,124 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.dto.InvoiceFilter;
+import com.invoiceapp.dto.InvoiceSummary;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.Invoice;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class InvoiceRepositoryImpl implements InvoiceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Invoice> loadByInvoiceNumber(String invoiceNumber) {
+        Optional<Invoice> invoice = entityManager.unwrap(Session.class).bySimpleNaturalId(Invoice.class)
+                .with((RootGraph<Invoice>) entityManager.getEntityGraph("Invoice.detail"), GraphSemantic.LOAD)
+                .loadOptional(invoiceNumber);
+        // The graph applies only on a cache miss; an invoice assembled from the cache holds a lazy client proxy,
+        // which is swapped for the (also cached) client so the invoice serializes as it does from a query
+        invoice.ifPresent(found -> found.setClient((Client) Hibernate.unproxy(found.getClient())));
+        return invoice;
+    }
+
+    @Override
+    public List<InvoiceSummary> findSummaries(InvoiceFilter filter, LocalDate afterDate, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.invoiceapp.dto.InvoiceSummary(i.id, i.invoiceNumber, c.id, c.name, " +
+                "i.invoiceDate, i.dueDate, i.total, i.paymentStatus) " +
+                "FROM Invoice i JOIN i.client c WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendFilter(jpql, params, filter);
+
+        if (afterDate != null && afterId != null) {
+            jpql.append(" AND (i.invoiceDate < :afterDate OR (i.invoiceDate = :afterDate AND i.id < :afterId))");
+            params.put("afterDate", afterDate);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY i.invoiceDate DESC, i.id DESC");
+
+        TypedQuery<InvoiceSummary> query = entityManager.createQuery(jpql.toString(), InvoiceSummary.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Object[]> lockByStatusDueBefore(Invoice.PaymentStatus status, LocalDate dueBefore,
+                                                LocalDate afterDueDate, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT i.id, i.dueDate, i.client.id FROM Invoice i " +
+                "WHERE i.paymentStatus = :status AND i.dueDate < :dueBefore");
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", status);
+        params.put("dueBefore", dueBefore);
+
+        if (afterDueDate != null && afterId != null) {
+            jpql.append(" AND (i.dueDate > :afterDueDate OR (i.dueDate = :afterDueDate AND i.id > :afterId))");
+            params.put("afterDueDate", afterDueDate);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY i.dueDate, i.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        return query.setLockMode(LockModeType.PESSIMISTIC_WRITE).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<Object[]> streamExportRows(InvoiceFilter filter, int fetchSize) {
+        // Scalar columns only, so nothing is added to the persistence context however many rows are read
+        StringBuilder jpql = new StringBuilder(
+                "SELECT i.id, i.invoiceNumber, i.invoiceDate, i.dueDate, i.paymentStatus, c.id, c.name, c.email, " +
+                "i.subtotal, i.taxRate, i.taxAmount, i.total, it.id, it.description, it.quantity, it.unitPrice, it.total, " +
+                "it.discountPercent, it.taxRate " +
+                "FROM Invoice i JOIN i.client c LEFT JOIN i.items it WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendFilter(jpql, params, filter);
+        jpql.append(" ORDER BY i.id, it.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        // The fetch size makes the driver read from a cursor rather than buffer the whole result
+        return query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    static void appendFilter(StringBuilder jpql, Map<String, Object> params, InvoiceFilter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.getStatus() != null) {
+            jpql.append(" AND i.paymentStatus = :status");
+            params.put("status", filter.getStatus());
+        }
+        if (filter.getClientId() != null) {
+            jpql.append(" AND i.client.id = :clientId");
+            params.put("clientId", filter.getClientId());
+        }
+        if (filter.getStartDate() != null) {
+            jpql.append(" AND i.invoiceDate >= :startDate");
+            params.put("startDate", filter.getStartDate());
+        }
+        if (filter.getEndDate() != null) {
+            jpql.append(" AND i.invoiceDate <= :endDate");
+            params.put("endDate", filter.getEndDate());
+        }
+    }
+}
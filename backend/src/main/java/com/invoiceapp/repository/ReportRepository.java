@@ -0,0 +1,59 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.entity.Invoice;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Aggregate queries behind the reports; each returns one row per group rather than the invoices themselves.
+// Cancelled invoices are left out of revenue; PENDING and OVERDUE invoices make up receivables.
+public interface ReportRepository extends Repository<Invoice, Long> {
+
+    // year, month, invoice count, invoiced total, paid total
+    @Query("SELECT YEAR(i.invoiceDate), MONTH(i.invoiceDate), COUNT(i), SUM(i.total), " +
+           "SUM(CASE WHEN i.paymentStatus = com.invoiceapp.entity.Invoice$PaymentStatus.PAID THEN i.total ELSE 0 END) " +
+           "FROM Invoice i WHERE i.invoiceDate BETWEEN :startDate AND :endDate " +
+           "AND i.paymentStatus <> com.invoiceapp.entity.Invoice$PaymentStatus.CANCELLED " +
+           "GROUP BY YEAR(i.invoiceDate), MONTH(i.invoiceDate)")
+    List<Object[]> sumByMonth(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // client id, invoice count, invoiced total, paid total; largest invoiced total first
+    @Query("SELECT i.client.id, COUNT(i), SUM(i.total), " +
+           "SUM(CASE WHEN i.paymentStatus = com.invoiceapp.entity.Invoice$PaymentStatus.PAID THEN i.total ELSE 0 END) " +
+           "FROM Invoice i WHERE i.invoiceDate BETWEEN :startDate AND :endDate " +
+           "AND i.paymentStatus <> com.invoiceapp.entity.Invoice$PaymentStatus.CANCELLED " +
+           "GROUP BY i.client.id ORDER BY SUM(i.total) DESC, i.client.id")
+    List<Object[]> sumByClient(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+                               Pageable pageable);
+
+    // Count and amount per bucket of days past due: not yet due, 0-30, 31-60, 61-90, over 90
+    @Query("SELECT " +
+           "SUM(CASE WHEN i.dueDate > :asOf THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate > :asOf THEN i.total ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate <= :asOf AND i.dueDate >= :overdue30 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate <= :asOf AND i.dueDate >= :overdue30 THEN i.total ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate < :overdue30 AND i.dueDate >= :overdue60 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate < :overdue30 AND i.dueDate >= :overdue60 THEN i.total ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate < :overdue60 AND i.dueDate >= :overdue90 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate < :overdue60 AND i.dueDate >= :overdue90 THEN i.total ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate < :overdue90 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN i.dueDate < :overdue90 THEN i.total ELSE 0 END) " +
+           "FROM Invoice i WHERE i.paymentStatus IN (com.invoiceapp.entity.Invoice$PaymentStatus.PENDING, " +
+           "com.invoiceapp.entity.Invoice$PaymentStatus.OVERDUE) AND i.invoiceDate <= :asOf")
+    List<Object[]> sumByAge(@Param("asOf") LocalDate asOf, @Param("overdue30") LocalDate overdue30,
+                            @Param("overdue60") LocalDate overdue60, @Param("overdue90") LocalDate overdue90);
+
+    @Query("SELECT COALESCE(SUM(i.total), 0) FROM Invoice i WHERE i.invoiceDate BETWEEN :startDate AND :endDate " +
+           "AND i.paymentStatus <> com.invoiceapp.entity.Invoice$PaymentStatus.CANCELLED")
+    BigDecimal sumInvoiced(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT COALESCE(SUM(i.total), 0) FROM Invoice i WHERE i.paymentStatus IN " +
+           "(com.invoiceapp.entity.Invoice$PaymentStatus.PENDING, com.invoiceapp.entity.Invoice$PaymentStatus.OVERDUE) " +
+           "AND i.invoiceDate <= :asOf")
+    BigDecimal sumReceivable(@Param("asOf") LocalDate asOf);
+}
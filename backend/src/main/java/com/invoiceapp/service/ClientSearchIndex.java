@@ -0,0 +1,808 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.repository.ClientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory search over client name, email, phone and GST number. Each field is broken into trigrams plus
+// word-start keys, and every key maps to a delta-encoded list of document numbers, so a search reads a few
+// posting lists instead of scanning the clients table. Terms of one or two characters match word prefixes,
+// longer terms match anywhere. Hits are ranked by field (name first) and by where in the field they matched.
+// ClientService keeps the index in step with client writes; it is rebuilt from the database on startup.
+// Rebuilds and compactions build the new segment outside the lock and replay the writes made meanwhile before
+// swapping it in, so neither stalls searches or client saves for longer than the copy and the swap.
+@Component
+public class ClientSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientSearchIndex.class);
+
+    // Fields in document order: name, email, phone, GST number
+    private static final int PHONE = 2;
+    private static final int FIELDS = 4;
+    private static final int[] FIELD_WEIGHTS = {4, 3, 2, 2};
+
+    // Match positions, multiplied by the field weight
+    private static final int INSIDE = 1;
+    private static final int WORD_START = 2;
+    private static final int FIELD_START = 3;
+
+    private static final char SEPARATOR = '\u0000';
+    private static final char START = '\u0001';
+    private static final char SPACE = ' ';
+
+    private static final int MAX_TERMS = 8;
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final int[] NO_DOCS = new int[0];
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Held for a whole rebuild or compaction, so only one of them records pending writes at a time
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private Segment segment = new Segment();
+    private volatile boolean ready;
+    // Writes seen while a rebuild or compaction builds its segment; replayed over it before it is swapped in
+    private Map<Long, String> pendingWrites;
+    private boolean compactionScheduled;
+
+    // Runs compactions off the write path
+    Executor compactionExecutor = task -> {
+        Thread thread = new Thread(task, "client-search-compact");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        // Searches fall back to the database until the index is loaded, so startup doesn't wait for it
+        Thread thread = new Thread(this::rebuild, "client-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void rebuild() {
+        buildLock.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        long started = System.nanoTime();
+        startRecording();
+
+        Segment rebuilt = new Segment();
+        try {
+            Long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = clientRepository.findSearchFieldsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (Object[] row : rows) {
+                    afterId = (Long) row[0];
+                    rebuilt.put(afterId, document((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+            } while (rows.size() == LOAD_PAGE_SIZE);
+        } catch (RuntimeException e) {
+            stopRecording();
+            log.error("Client search index rebuild failed; searches keep using the database", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            swapIn(rebuilt);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} clients for search in {} ms", rebuilt.liveCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Replaces the segment with one holding only its live documents
+    void compact() {
+        buildLock.lock();
+        try {
+            Snapshot snapshot;
+            lock.writeLock().lock();
+            try {
+                // A rebuild may have replaced the segment while this compaction waited for its turn
+                if (!segment.needsCompaction()) {
+                    return;
+                }
+                snapshot = segment.snapshot();
+                pendingWrites = new LinkedHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Segment compacted;
+            try {
+                compacted = snapshot.build();
+            } catch (RuntimeException e) {
+                stopRecording();
+                log.error("Client search index compaction failed; the current segment stays in use", e);
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                swapIn(compacted);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                compactionScheduled = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            buildLock.unlock();
+        }
+    }
+
+    private void startRecording() {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void stopRecording() {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Call with the write lock held
+    private void swapIn(Segment built) {
+        for (Map.Entry<Long, String> write : pendingWrites.entrySet()) {
+            if (write.getValue() != null) {
+                built.put(write.getKey(), write.getValue());
+            } else {
+                built.remove(write.getKey());
+            }
+        }
+        pendingWrites = null;
+        segment = built;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Client client) {
+        write(client.getId(), document(client.getName(), client.getEmail(), client.getPhone(), client.getGstNumber()));
+    }
+
+    public void remove(Long clientId) {
+        write(clientId, null);
+    }
+
+    // Client ids of the requested page of hits, best first; total is the number of clients matching every term
+    public Page<Long> search(String term, int page, int size) {
+        String[] terms = terms(term);
+        PageRequest pageRequest = PageRequest.of(page, size);
+        if (terms.length == 0) {
+            return new PageImpl<>(List.of(), pageRequest, 0);
+        }
+        lock.readLock().lock();
+        try {
+            return segment.search(terms, pageRequest);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Long clientId, String document) {
+        boolean compact = false;
+        lock.writeLock().lock();
+        try {
+            if (document != null) {
+                segment.put(clientId, document);
+            } else {
+                segment.remove(clientId);
+            }
+            if (pendingWrites != null) {
+                pendingWrites.remove(clientId);
+                pendingWrites.put(clientId, document);
+            }
+            if (!compactionScheduled && segment.needsCompaction()) {
+                compactionScheduled = true;
+                compact = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact) {
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    // The four normalized fields joined by SEPARATOR
+    private static String document(String name, String email, String phone, String gstNumber) {
+        return normalize(name) + SEPARATOR + normalize(email) + SEPARATOR + digits(phone) + SEPARATOR
+                + normalize(gstNumber).replace(" ", "");
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("[\\s\\u0000\\u0001]+", " ");
+    }
+
+    private static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static String[] terms(String term) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return new String[0];
+        }
+        String[] terms = normalized.split(" ");
+        return terms.length > MAX_TERMS ? Arrays.copyOf(terms, MAX_TERMS) : terms;
+    }
+
+    private static long key(int field, char first, char second, char third) {
+        // The multiply is a bijection that spreads the packed characters over the hash code's bits
+        return (((long) field << 48) | ((long) first << 32) | ((long) second << 16) | third) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isWordStart(String value, int index) {
+        return isWordChar(value.charAt(index)) && (index == 0 || !isWordChar(value.charAt(index - 1)));
+    }
+
+    private static final class Segment {
+
+        private final Map<Long, PostingList> postings = new HashMap<>();
+        private final Map<Long, Integer> docsByClient = new HashMap<>();
+        private long[] clientIds = new long[1024];
+        private String[] documents = new String[1024];
+        private int docCount;
+        private final BitSet deleted = new BitSet();
+
+        int liveCount() {
+            return docsByClient.size();
+        }
+
+        // Documents are append-only: a changed client gets a new document number and the old one is deleted
+        void put(long clientId, String document) {
+            Integer existing = docsByClient.get(clientId);
+            if (existing != null) {
+                if (documents[existing].equals(document)) {
+                    return;
+                }
+                delete(existing);
+            }
+            if (docCount == clientIds.length) {
+                clientIds = Arrays.copyOf(clientIds, docCount * 2);
+                documents = Arrays.copyOf(documents, docCount * 2);
+            }
+            int doc = docCount++;
+            clientIds[doc] = clientId;
+            documents[doc] = document;
+            docsByClient.put(clientId, doc);
+            for (long key : keys(document)) {
+                postings.computeIfAbsent(key, k -> new PostingList()).add(doc);
+            }
+        }
+
+        void remove(long clientId) {
+            Integer existing = docsByClient.remove(clientId);
+            if (existing != null) {
+                delete(existing);
+            }
+        }
+
+        private void delete(int doc) {
+            deleted.set(doc);
+            documents[doc] = null;
+        }
+
+        boolean needsCompaction() {
+            int dead = docCount - docsByClient.size();
+            return dead > 1024 && dead > docCount / 4;
+        }
+
+        // Deleted documents are already null, so copying the two arrays captures exactly the live ones
+        Snapshot snapshot() {
+            return new Snapshot(Arrays.copyOf(clientIds, docCount), Arrays.copyOf(documents, docCount));
+        }
+
+        // Sorted, distinct keys for every field of the document
+        private static long[] keys(String document) {
+            long[] keys = new long[document.length() * 3 + 8];
+            int count = 0;
+            int field = 0;
+            int start = 0;
+            for (int i = 0; i <= document.length(); i++) {
+                if (i < document.length() && document.charAt(i) != SEPARATOR) {
+                    continue;
+                }
+                String value = document.substring(start, i);
+                for (int j = 0; j < value.length(); j++) {
+                    // Trigrams of the value with two START characters in front, so field prefixes get keys too
+                    char first = j >= 2 ? value.charAt(j - 2) : START;
+                    char second = j >= 1 ? value.charAt(j - 1) : START;
+                    keys[count++] = key(field, first, second, value.charAt(j));
+                    if (isWordStart(value, j)) {
+                        keys[count++] = key(field, SPACE, SPACE, value.charAt(j));
+                        if (j + 1 < value.length()) {
+                            keys[count++] = key(field, SPACE, value.charAt(j), value.charAt(j + 1));
+                        }
+                    }
+                }
+                field++;
+                start = i + 1;
+            }
+            Arrays.sort(keys, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+                    keys[distinct++] = keys[i];
+                }
+            }
+            return Arrays.copyOf(keys, distinct);
+        }
+
+        Page<Long> search(String[] terms, PageRequest pageRequest) {
+            List<TermQuery> queries = new ArrayList<>(terms.length);
+            for (String term : terms) {
+                queries.add(new TermQuery(term));
+            }
+            // Start from the rarest term so the later ones only check a short candidate list
+            queries.sort((a, b) -> Integer.compare(a.estimate, b.estimate));
+
+            int[] candidates = null;
+            int[] scores = null;
+            for (TermQuery query : queries) {
+                if (query.estimate == 0) {
+                    return new PageImpl<>(List.of(), pageRequest, 0);
+                }
+                if (candidates == null) {
+                    candidates = query.allDocs();
+                    scores = new int[candidates.length];
+                }
+                int[] termScores = query.score(candidates);
+                int kept = 0;
+                for (int i = 0; i < candidates.length; i++) {
+                    if (termScores[i] > 0) {
+                        candidates[kept] = candidates[i];
+                        scores[kept++] = scores[i] + termScores[i];
+                    }
+                }
+                candidates = Arrays.copyOf(candidates, kept);
+                scores = Arrays.copyOf(scores, kept);
+                if (kept == 0) {
+                    break;
+                }
+            }
+            return page(candidates, scores, pageRequest);
+        }
+
+        // Orders hits by score, then by document number, with a counting sort since scores are small integers
+        private Page<Long> page(int[] candidates, int[] scores, PageRequest pageRequest) {
+            int total = candidates.length;
+            long from = pageRequest.getOffset();
+            if (from >= total) {
+                return new PageImpl<>(List.of(), pageRequest, total);
+            }
+            int maxScore = 0;
+            for (int score : scores) {
+                maxScore = Math.max(maxScore, score);
+            }
+            int[] startOfScore = new int[maxScore + 2];
+            for (int score : scores) {
+                startOfScore[maxScore - score + 1]++;
+            }
+            for (int i = 1; i < startOfScore.length; i++) {
+                startOfScore[i] += startOfScore[i - 1];
+            }
+            int to = (int) Math.min(total, from + pageRequest.getPageSize());
+            long[] ranked = new long[to - (int) from];
+            int[] next = Arrays.copyOf(startOfScore, startOfScore.length);
+            for (int i = 0; i < total; i++) {
+                int position = next[maxScore - scores[i]]++;
+                if (position >= from && position < to) {
+                    ranked[position - (int) from] = clientIds[candidates[i]];
+                }
+            }
+            List<Long> ids = new ArrayList<>(ranked.length);
+            for (long id : ranked) {
+                ids.add(id);
+            }
+            return new PageImpl<>(ids, pageRequest, total);
+        }
+
+
+        private int count(long key) {
+            PostingList list = postings.get(key);
+            return list != null ? list.count : 0;
+        }
+
+        // One search term resolved against each field
+        private final class TermQuery {
+            private final String[] fieldTerms = new String[FIELDS];
+            private final long[][] fieldKeys = new long[FIELDS][];
+            private final int[][] fieldDocs = new int[FIELDS][];
+            private final Map<Long, int[]> decoded = new HashMap<>();
+            private final int estimate;
+
+            TermQuery(String term) {
+                int estimate = 0;
+                for (int field = 0; field < FIELDS; field++) {
+                    String fieldTerm = field == PHONE ? digits(term) : term;
+                    if (fieldTerm.isEmpty()) {
+                        continue;
+                    }
+                    fieldTerms[field] = fieldTerm;
+                    fieldKeys[field] = termKeys(field, fieldTerm);
+                    int smallest = Integer.MAX_VALUE;
+                    for (long key : fieldKeys[field]) {
+                        smallest = Math.min(smallest, count(key));
+                    }
+                    estimate += fieldTerm.length() < 3 ? count(fieldKeys[field][0]) + count(fieldKeys[field][1]) : smallest;
+                }
+                this.estimate = estimate;
+            }
+
+            // Short terms: the field-start key then the word-start key. Longer terms: every trigram in the term.
+            private long[] termKeys(int field, String term) {
+                if (term.length() == 1) {
+                    return new long[]{key(field, START, START, term.charAt(0)), key(field, SPACE, SPACE, term.charAt(0))};
+                }
+                if (term.length() == 2) {
+                    return new long[]{key(field, START, term.charAt(0), term.charAt(1)),
+                            key(field, SPACE, term.charAt(0), term.charAt(1))};
+                }
+                long[] keys = new long[term.length() - 2];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = key(field, term.charAt(i), term.charAt(i + 1), term.charAt(i + 2));
+                }
+                return keys;
+            }
+
+            // Live documents that might match this term in any field
+            int[] allDocs() {
+                int[] union = NO_DOCS;
+                for (int field = 0; field < FIELDS; field++) {
+                    if (fieldTerms[field] == null) {
+                        continue;
+                    }
+                    long[] keys = fieldKeys[field];
+                    if (fieldTerms[field].length() < 3) {
+                        union = union(union, union(docs(keys[0]), docs(keys[1])));
+                    } else {
+                        fieldDocs[field] = trigramDocs(null, keys);
+                        union = union(union, fieldDocs[field]);
+                    }
+                }
+                int[] live = new int[union.length];
+                int count = 0;
+                for (int doc : union) {
+                    if (!deleted.get(doc)) {
+                        live[count++] = doc;
+                    }
+                }
+                return Arrays.copyOf(live, count);
+            }
+
+            // Best weighted match of this term for each candidate, 0 where it doesn't match
+            int[] score(int[] candidates) {
+                int[] scores = new int[candidates.length];
+                for (int field = 0; field < FIELDS; field++) {
+                    String fieldTerm = fieldTerms[field];
+                    if (fieldTerm == null) {
+                        continue;
+                    }
+                    int weight = FIELD_WEIGHTS[field];
+                    long[] keys = fieldKeys[field];
+                    if (fieldTerm.length() < 3) {
+                        // The keys are exact for short terms, so no document text needs reading
+                        mark(candidates, keys[1], scores, weight * WORD_START);
+                        mark(candidates, keys[0], scores, weight * FIELD_START);
+                        continue;
+                    }
+                    int[] docs = fieldDocs[field] != null ? fieldDocs[field] : trigramDocs(candidates, keys);
+                    int j = 0;
+                    for (int i = 0; i < candidates.length && j < docs.length; i++) {
+                        while (j < docs.length && docs[j] < candidates[i]) {
+                            j++;
+                        }
+                        if (j < docs.length && docs[j] == candidates[i]) {
+                            // Trigrams can all be present without the term itself, so confirm against the text
+                            int position = matchPosition(documents[candidates[i]], field, fieldTerm);
+                            scores[i] = Math.max(scores[i], weight * position);
+                        }
+                    }
+                }
+                return scores;
+            }
+
+            // Docs (optionally limited to the given candidates) holding the two rarest trigrams of the term.
+            // The remaining trigrams rarely narrow the list further, and every hit is checked against the text anyway.
+            private int[] trigramDocs(int[] candidates, long[] keys) {
+                long[] byCount = byCount(keys);
+                int[] docs = candidates != null ? retain(candidates, byCount[0]) : docs(byCount[0]);
+                if (byCount.length > 1 && docs.length > 0) {
+                    docs = retain(docs, byCount[1]);
+                }
+                return docs;
+            }
+
+            private long[] byCount(long[] keys) {
+                List<Long> sorted = new ArrayList<>(keys.length);
+                for (long key : keys) {
+                    sorted.add(key);
+                }
+                sorted.sort((a, b) -> Integer.compare(count(a), count(b)));
+                long[] byCount = new long[keys.length];
+                for (int i = 0; i < byCount.length; i++) {
+                    byCount[i] = sorted.get(i);
+                }
+                return byCount;
+            }
+
+            private int[] docs(long key) {
+                return decoded.computeIfAbsent(key, k -> {
+                    PostingList list = postings.get(k);
+                    return list != null ? list.docs() : NO_DOCS;
+                });
+            }
+
+            // The docs that also appear under key
+            private int[] retain(int[] docs, long key) {
+                PostingList list = postings.get(key);
+                if (list == null) {
+                    return NO_DOCS;
+                }
+                PostingList.Cursor cursor = list.cursor();
+                int[] retained = new int[docs.length];
+                int count = 0;
+                for (int doc : docs) {
+                    if (cursor.advanceTo(doc)) {
+                        retained[count++] = doc;
+                    }
+                }
+                return Arrays.copyOf(retained, count);
+            }
+
+            private void mark(int[] candidates, long key, int[] scores, int score) {
+                int[] docs = decoded.get(key);
+                if (docs != null) {
+                    // Already decoded for the candidate list, so walk the array
+                    int j = 0;
+                    for (int i = 0; i < candidates.length && j < docs.length; i++) {
+                        while (j < docs.length && docs[j] < candidates[i]) {
+                            j++;
+                        }
+                        if (j < docs.length && docs[j] == candidates[i]) {
+                            scores[i] = Math.max(scores[i], score);
+                        }
+                    }
+                    return;
+                }
+                PostingList list = postings.get(key);
+                if (list == null) {
+                    return;
+                }
+                PostingList.Cursor cursor = list.cursor();
+                for (int i = 0; i < candidates.length; i++) {
+                    if (cursor.advanceTo(candidates[i])) {
+                        scores[i] = Math.max(scores[i], score);
+                    }
+                }
+            }
+        }
+
+        private static int matchPosition(String document, int field, String term) {
+            int start = 0;
+            for (int i = 0; i < field; i++) {
+                start = document.indexOf(SEPARATOR, start) + 1;
+            }
+            int end = document.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = document.length();
+            }
+            int best = 0;
+            int index = document.indexOf(term, start);
+            while (index >= 0 && index + term.length() <= end) {
+                if (index == start) {
+                    return FIELD_START;
+                }
+                best = Math.max(best, isWordStart(document, index) ? WORD_START : INSIDE);
+                index = document.indexOf(term, index + 1);
+            }
+            return best;
+        }
+
+        private static int[] union(int[] a, int[] b) {
+            if (a.length == 0) {
+                return b;
+            }
+            if (b.length == 0) {
+                return a;
+            }
+            int[] merged = new int[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.length || j < b.length) {
+                int next;
+                if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                    next = a[i++];
+                } else if (i >= a.length || b[j] < a[i]) {
+                    next = b[j++];
+                } else {
+                    next = a[i++];
+                    j++;
+                }
+                merged[n++] = next;
+            }
+            return Arrays.copyOf(merged, n);
+        }
+    }
+
+    // The live documents of a segment at one point in time, in document order
+    private static final class Snapshot {
+        private final long[] clientIds;
+        private final String[] documents;
+
+        Snapshot(long[] clientIds, String[] documents) {
+            this.clientIds = clientIds;
+            this.documents = documents;
+        }
+
+        Segment build() {
+            Segment segment = new Segment();
+            for (int doc = 0; doc < documents.length; doc++) {
+                if (documents[doc] != null) {
+                    segment.put(clientIds[doc], documents[doc]);
+                }
+            }
+            return segment;
+        }
+    }
+
+    // Ascending document numbers stored as varint gaps, usually one or two bytes per entry. Every SKIP_INTERVAL
+    // entries a skip pointer records the document reached and the byte offset, so a cursor probing for a few
+    // documents can jump over the blocks in between instead of decoding them.
+    private static final class PostingList {
+        private static final int SKIP_INTERVAL = 64;
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private int last = -1;
+        private int[] skipDocs = NO_DOCS;
+        private int[] skipOffsets = NO_DOCS;
+
+        void add(int doc) {
+            int gap = doc - last;
+            last = doc;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((gap & ~0x7F) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            count++;
+            if (count % SKIP_INTERVAL == 0) {
+                int skip = count / SKIP_INTERVAL - 1;
+                if (skip == skipDocs.length) {
+                    skipDocs = Arrays.copyOf(skipDocs, Math.max(4, skip * 2));
+                    skipOffsets = Arrays.copyOf(skipOffsets, skipDocs.length);
+                }
+                skipDocs[skip] = doc;
+                skipOffsets[skip] = length;
+            }
+        }
+
+        int[] docs() {
+            int[] docs = new int[count];
+            Cursor cursor = cursor();
+            for (int i = 0; i < count; i++) {
+                docs[i] = cursor.next();
+            }
+            return docs;
+        }
+
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        final class Cursor {
+            private int index;
+            private int position;
+            private int doc = -1;
+
+            int next() {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                index++;
+                doc += gap;
+                return doc;
+            }
+
+            // Moves to the first document at or after target; targets must not decrease between calls
+            boolean advanceTo(int target) {
+                if (doc >= target) {
+                    return doc == target;
+                }
+                int skips = count / SKIP_INTERVAL;
+                int skip = index / SKIP_INTERVAL;
+                if (skip < skips && skipDocs[skip] < target) {
+                    int low = skip;
+                    int high = skips - 1;
+                    while (low < high) {
+                        int mid = (low + high + 1) >>> 1;
+                        if (skipDocs[mid] < target) {
+                            low = mid;
+                        } else {
+                            high = mid - 1;
+                        }
+                    }
+                    index = (low + 1) * SKIP_INTERVAL;
+                    position = skipOffsets[low];
+                    doc = skipDocs[low];
+                }
+                while (doc < target && index < count) {
+                    next();
+                }
+                return doc == target;
+            }
+        }
+    }
+}
@@ -1,11 +1,26 @@
 package com.invoiceapp.service;
 
+import com.invoiceapp.dto.ClientStats;
+import com.invoiceapp.dto.ClientSuggestion;
+import com.invoiceapp.dto.OffsetPage;
 import com.invoiceapp.entity.Client;
 import com.invoiceapp.repository.ClientRepository;
+import com.invoiceapp.repository.ClientRepositoryCustom;
+import com.invoiceapp.repository.InvoiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -14,24 +29,119 @@ public class ClientService {
     @Autowired
     private ClientRepository clientRepository;
 
-    public List<Client> getAllClients() {
-        return clientRepository.findAll();
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PdfCache pdfCache;
+
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    @Autowired
+    private ClientSuggestIndex suggestIndex;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private ClientSummaryService clientSummaryService;
+
+    @Transactional(readOnly = true)
+    public Page<Client> getClients(int page, int size) {
+        return clientRepository.findAll(PageRequest.of(page, size, Sort.by("id")));
+    }
+
+    // A page of clients with their invoice statistics: a query for the page's ids, one aggregating only those
+    // clients' invoices, and a count
+    @Transactional(readOnly = true)
+    public OffsetPage<ClientStats> getClientStatsPage(String sort, boolean ascending, int page, int size) {
+        if (!ClientRepositoryCustom.STATS_SORT_KEYS.contains(sort)) {
+            throw new IllegalArgumentException("Unknown sort '" + sort + "', expected one of " + ClientRepositoryCustom.STATS_SORT_KEYS);
+        }
+        int offset = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        List<ClientStats> stats = clientRepository.findStatsPage(sort, ascending, LocalDate.now(), offset, size);
+        return new OffsetPage<>(stats, page, size, clientRepository.count());
     }
 
+    @Transactional(readOnly = true)
     public Optional<Client> getClientById(Long id) {
         return clientRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Client> getClientByEmail(String email) {
         return clientRepository.findByEmail(email);
     }
 
-    public List<Client> searchClients(String searchTerm) {
-        return clientRepository.searchClients(searchTerm);
+    // Ranked matches on name, email, phone or GST number
+    @Transactional(readOnly = true)
+    public Page<Client> searchClients(String searchTerm, int page, int size) {
+        if (!searchIndex.isReady()) {
+            return clientRepository.searchClients(searchTerm, PageRequest.of(page, size));
+        }
+        Page<Long> hits = searchIndex.search(searchTerm, page, size);
+        Map<Long, Client> clients = new HashMap<>();
+        for (Client client : clientRepository.findAllById(hits.getContent())) {
+            clients.put(client.getId(), client);
+        }
+        List<Client> ranked = new ArrayList<>(hits.getNumberOfElements());
+        for (Long id : hits.getContent()) {
+            Client client = clients.get(id);
+            if (client != null) {
+                ranked.add(client);
+            }
+        }
+        return new PageImpl<>(ranked, hits.getPageable(), hits.getTotalElements());
+    }
+
+    // Clients whose name or email starts with the prefix, most recently invoiced first; alphabetical from the
+    // database while the suggestion index is still being built
+    @Transactional(readOnly = true)
+    public List<ClientSuggestion> suggestClients(String prefix, int limit) {
+        if (suggestIndex.isReady()) {
+            return suggestIndex.suggest(prefix, limit);
+        }
+        String normalized = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<ClientSuggestion> suggestions = new ArrayList<>();
+        for (Object[] row : clientRepository.findNamesAndEmailsByPrefix(normalized, PageRequest.of(0, limit))) {
+            suggestions.add(new ClientSuggestion((Long) row[0], (String) row[1], (String) row[2], null));
+        }
+        return suggestions;
     }
 
+    @Transactional
     public Client saveClient(Client client) {
-        return clientRepository.save(client);
+        boolean created = client.getId() == null;
+        Client savedClient = clientRepository.save(client);
+        if (created) {
+            clientSummaryService.recordCreated(List.of(savedClient.getId()));
+        }
+        searchIndex.index(savedClient);
+        suggestIndex.put(savedClient);
+        return savedClient;
+    }
+
+    // Inserts the clients in one transaction, so they reach the database as JDBC batches
+    @Transactional
+    public List<Client> saveClients(List<Client> clients) {
+        List<Client> savedClients = clientRepository.saveAll(clients);
+        List<Long> ids = new ArrayList<>(savedClients.size());
+        for (Client savedClient : savedClients) {
+            ids.add(savedClient.getId());
+        }
+        clientSummaryService.recordCreated(ids);
+        for (Client savedClient : savedClients) {
+            searchIndex.index(savedClient);
+            suggestIndex.put(savedClient);
+        }
+        return savedClients;
     }
 
     public Client updateClient(Long id, Client clientDetails) {
@@ -48,13 +158,26 @@ public class ClientService {
         client.setCountry(clientDetails.getCountry());
         client.setGstNumber(clientDetails.getGstNumber());
 
-        return clientRepository.save(client);
+        Client savedClient = clientRepository.save(client);
+        searchIndex.index(savedClient);
+        suggestIndex.put(savedClient);
+        // The client's details are printed on each of its invoices
+        pdfCache.evictAll(invoiceRepository.findIdsByClientId(id));
+        reportService.evictAll();
+        return savedClient;
     }
 
+    // Its invoices are deleted with it (cascade), so the dashboard rollup drops them in the same transaction
+    @Transactional
     public void deleteClient(Long id) {
         Client client = clientRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Client not found with id: " + id));
+        dashboardService.recordClientDeleted(id);
+        clientSummaryService.recordClientDeleted(id);
         clientRepository.delete(client);
+        reportService.evictAll();
+        searchIndex.remove(id);
+        suggestIndex.remove(id);
     }
 
     public boolean existsByEmail(String email) {
@@ -0,0 +1,635 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.ClientSuggestion;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.repository.ClientRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Typeahead over client names and emails. Each client keeps only its id, "name\0email" and the minute it
+// was last invoiced. The prefix structure is a sorted array of packed (client slot, offset) entries, one per
+// word of the name plus one for the email, ordered by the text from that offset. A prefix is a contiguous
+// range of that array, and a max-tree over last-invoiced minutes picks the most recently invoiced clients in
+// the range without scanning it. New entries wait in a small unsorted buffer that is merged in bulk, and the
+// merge frees the slots of changed and removed clients for reuse.
+// Built from the database in the background after startup, outside the lock: writes made meanwhile are
+// recorded and replayed before the built index is swapped in, so client saves and invoice creates never wait
+// for the load. Until then ClientService answers from the database.
+@Component
+public class ClientSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientSuggestIndex.class);
+
+    private static final char SEPARATOR = '\u0000';
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int MERGE_THRESHOLD = 4096;
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+    private Index index = new Index();
+
+    // Writes seen before the build is swapped in: name and email by client (null for a removal), and the
+    // latest invoiced minute by client. Null once built, or after a failed build.
+    private Map<Long, String[]> pendingWrites = new LinkedHashMap<>();
+    private Map<Long, Integer> pendingInvoiced = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread thread = new Thread(this::build, "client-suggest-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isReady() {
+        return built;
+    }
+
+    // Empty until the index is built
+    public List<ClientSuggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0 || !built) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return index.suggest(normalized, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Client client) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                index.put(client.getId(), client.getName(), client.getEmail());
+            } else if (pendingWrites != null) {
+                pendingWrites.remove(client.getId());
+                pendingWrites.put(client.getId(), new String[]{client.getName(), client.getEmail()});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long clientId) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                index.remove(clientId);
+            } else if (pendingWrites != null) {
+                pendingWrites.remove(clientId);
+                pendingWrites.put(clientId, null);
+                pendingInvoiced.remove(clientId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called inside invoice transactions, so it only ever holds the lock for an in-memory update
+    public void recordInvoiced(Long clientId, LocalDateTime invoicedAt) {
+        if (clientId == null || invoicedAt == null) {
+            return;
+        }
+        int minute = minute(invoicedAt);
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                index.recordInvoiced(clientId, minute);
+            } else if (pendingInvoiced != null) {
+                pendingInvoiced.merge(clientId, minute, Math::max);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void build() {
+        long started = System.nanoTime();
+        Index loaded = new Index();
+        try {
+            Map<Long, Integer> invoicedByClient = new HashMap<>();
+            for (Object[] row : invoiceRepository.findLastCreatedAtByClient()) {
+                if (row[1] != null) {
+                    invoicedByClient.put((Long) row[0], minute((LocalDateTime) row[1]));
+                }
+            }
+            Long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = clientRepository.findNamesAndEmailsAfter(afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (Object[] row : rows) {
+                    afterId = (Long) row[0];
+                    loaded.load(afterId, (String) row[1], (String) row[2], invoicedByClient.getOrDefault(afterId, 0));
+                }
+            } while (rows.size() == LOAD_PAGE_SIZE);
+            loaded.finishLoad();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+                pendingInvoiced = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Client suggestion index build failed; suggestions keep using the database", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, String[]> write : pendingWrites.entrySet()) {
+                if (write.getValue() != null) {
+                    loaded.put(write.getKey(), write.getValue()[0], write.getValue()[1]);
+                } else {
+                    loaded.remove(write.getKey());
+                }
+            }
+            for (Map.Entry<Long, Integer> invoiced : pendingInvoiced.entrySet()) {
+                loaded.recordInvoiced(invoiced.getKey(), invoiced.getValue());
+            }
+            pendingWrites = null;
+            pendingInvoiced = null;
+            index = loaded;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built client suggestions for {} clients ({} prefixes) in {} ms",
+                loaded.slotsByClient.size(), loaded.entries.length, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // The slots, sorted entries and tree; not thread-safe, the outer lock guards the one in use
+    private static final class Index {
+
+        // Per client slot; a changed client moves to a new slot so the sorted entries never need re-sorting.
+        // Slots left behind are reused once a merge has dropped their entries.
+        private final SlotMap slotsByClient = new SlotMap();
+        private long[] clientIds = new long[1024];
+        private String[] texts = new String[1024];
+        private int[] lastInvoiced = new int[1024];
+        private int slotCount;
+        private final BitSet removed = new BitSet();
+        private int[] freeSlots = new int[0];
+        private int freeCount;
+
+        // slot << 16 | offset, sorted by the lowercased text of the slot from offset to the end of its field
+        private long[] entries = new long[0];
+        private long[] pending = new long[64];
+        private int pendingCount;
+
+        // Max of lastInvoiced over entry ranges; leaf i is at treeSize + i
+        private int[] tree = new int[2];
+        private int treeSize = 1;
+
+        // Entries of a bulk load, sorted once at the end
+        private long[] loaded = new long[1024];
+        private int loadedCount;
+
+        private final Comparator<Long> entryOrder = (a, b) -> compareEntries(a, b);
+
+        List<ClientSuggestion> suggest(String normalized, int limit) {
+            List<Integer> slots = new ArrayList<>();
+            Set<Integer> seen = new HashSet<>();
+            collectTop(normalized, limit, slots, seen);
+            for (int i = 0; i < pendingCount; i++) {
+                int slot = slot(pending[i]);
+                if (!removed.get(slot) && !seen.contains(slot) && startsWith(pending[i], normalized)) {
+                    seen.add(slot);
+                    slots.add(slot);
+                }
+            }
+            // The tree yields the main entries in order; buffered ones still have to be ranked in
+            slots.sort((a, b) -> lastInvoiced[a] != lastInvoiced[b]
+                    ? Integer.compare(lastInvoiced[b], lastInvoiced[a])
+                    : texts[a].compareToIgnoreCase(texts[b]));
+
+            List<ClientSuggestion> suggestions = new ArrayList<>(Math.min(limit, slots.size()));
+            for (int slot : slots.subList(0, Math.min(limit, slots.size()))) {
+                String text = texts[slot];
+                int separator = text.indexOf(SEPARATOR);
+                LocalDateTime invoicedAt = lastInvoiced[slot] > 0
+                        ? LocalDateTime.ofEpochSecond(lastInvoiced[slot] * 60L, 0, ZoneOffset.UTC) : null;
+                suggestions.add(new ClientSuggestion(clientIds[slot], text.substring(0, separator),
+                        text.substring(separator + 1), invoicedAt));
+            }
+            return suggestions;
+        }
+
+        void put(long clientId, String name, String email) {
+            int existing = slotsByClient.get(clientId);
+            int invoiced = 0;
+            if (existing >= 0) {
+                // Saves that leave name and email alone don't need a new slot
+                if (texts[existing].equals(text(name, email))) {
+                    return;
+                }
+                invoiced = lastInvoiced[existing];
+                removed.set(existing);
+            }
+            int slot = addSlot(clientId, name, email, invoiced);
+            for (long entry : entriesOf(slot)) {
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                }
+                pending[pendingCount++] = entry;
+            }
+            mergeIfFull();
+        }
+
+        void remove(long clientId) {
+            int existing = slotsByClient.remove(clientId);
+            if (existing >= 0) {
+                removed.set(existing);
+            }
+        }
+
+        void recordInvoiced(long clientId, int minute) {
+            int slot = slotsByClient.get(clientId);
+            if (slot < 0 || minute <= lastInvoiced[slot]) {
+                return;
+            }
+            lastInvoiced[slot] = minute;
+            // Entries still in the buffer read lastInvoiced directly; sorted ones need their leaves raised
+            for (long entry : entriesOf(slot)) {
+                int position = find(entry);
+                if (position >= 0) {
+                    raise(position, minute);
+                }
+            }
+        }
+
+        // Bulk load: slots are added unsorted and finishLoad sorts all their entries at once
+        void load(long clientId, String name, String email, int invoiced) {
+            int slot = addSlot(clientId, name, email, invoiced);
+            for (long entry : entriesOf(slot)) {
+                if (loadedCount == loaded.length) {
+                    loaded = Arrays.copyOf(loaded, loadedCount * 2);
+                }
+                loaded[loadedCount++] = entry;
+            }
+        }
+
+        void finishLoad() {
+            Long[] sorted = new Long[loadedCount];
+            for (int i = 0; i < loadedCount; i++) {
+                sorted[i] = loaded[i];
+            }
+            Arrays.sort(sorted, entryOrder);
+            entries = new long[sorted.length];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = sorted[i];
+            }
+            loaded = null;
+            loadedCount = 0;
+            buildTree();
+        }
+
+        private int addSlot(long clientId, String name, String email, int invoiced) {
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                if (slotCount == clientIds.length) {
+                    clientIds = Arrays.copyOf(clientIds, slotCount * 2);
+                    texts = Arrays.copyOf(texts, slotCount * 2);
+                    lastInvoiced = Arrays.copyOf(lastInvoiced, slotCount * 2);
+                }
+                slot = slotCount++;
+            }
+            clientIds[slot] = clientId;
+            texts[slot] = text(name, email);
+            lastInvoiced[slot] = invoiced;
+            slotsByClient.put(clientId, slot);
+            return slot;
+        }
+
+        private static String text(String name, String email) {
+            return (name != null ? name.trim() : "") + SEPARATOR + (email != null ? email.trim() : "");
+        }
+
+        // One entry for every word of the name and one for the email
+        private long[] entriesOf(int slot) {
+            String text = texts[slot];
+            int separator = text.indexOf(SEPARATOR);
+            long[] offsets = new long[separator + 2];
+            int count = 0;
+            for (int i = 0; i < separator && i <= MAX_OFFSET; i++) {
+                if (Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+                    offsets[count++] = entry(slot, i);
+                }
+            }
+            if (separator + 1 < text.length() && separator + 1 <= MAX_OFFSET) {
+                offsets[count++] = entry(slot, separator + 1);
+            }
+            return Arrays.copyOf(offsets, count);
+        }
+
+        private void mergeIfFull() {
+            if (pendingCount < MERGE_THRESHOLD) {
+                return;
+            }
+            Long[] buffered = new Long[pendingCount];
+            int live = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                if (!removed.get(slot(pending[i]))) {
+                    buffered[live++] = pending[i];
+                }
+            }
+            Arrays.sort(buffered, 0, live, entryOrder);
+
+            // Place each buffered entry by binary search and copy the sorted runs between them in bulk
+            long[] merged = new long[entries.length + live];
+            int count = 0;
+            int copied = 0;
+            for (int j = 0; j < live; j++) {
+                int insertAt = -find(buffered[j]) - 1;
+                System.arraycopy(entries, copied, merged, count, insertAt - copied);
+                count += insertAt - copied;
+                copied = insertAt;
+                merged[count++] = buffered[j];
+            }
+            System.arraycopy(entries, copied, merged, count, entries.length - copied);
+            count += entries.length - copied;
+
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!removed.get(slot(merged[i]))) {
+                    merged[kept++] = merged[i];
+                }
+            }
+            count = kept;
+            entries = Arrays.copyOf(merged, count);
+            pending = new long[64];
+            pendingCount = 0;
+
+            // Removed slots no longer have entries anywhere, so they can be handed out again
+            int freed = removed.cardinality();
+            if (freeCount + freed > freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, Math.max(freeCount + freed, freeSlots.length * 2));
+            }
+            for (int slot = removed.nextSetBit(0); slot >= 0; slot = removed.nextSetBit(slot + 1)) {
+                texts[slot] = null;
+                freeSlots[freeCount++] = slot;
+            }
+            removed.clear();
+            buildTree();
+        }
+
+        private void buildTree() {
+            treeSize = Integer.highestOneBit(Math.max(1, entries.length - 1)) << 1;
+            tree = new int[treeSize * 2];
+            Arrays.fill(tree, treeSize, tree.length, -1);
+            for (int i = 0; i < entries.length; i++) {
+                tree[treeSize + i] = lastInvoiced[slot(entries[i])];
+            }
+            for (int node = treeSize - 1; node > 0; node--) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        private void raise(int position, int minute) {
+            for (int node = treeSize + position; node > 0 && tree[node] < minute; node >>= 1) {
+                tree[node] = minute;
+            }
+        }
+
+        // Walks the tree nodes covering the prefix range best-first, so only about limit * log(n) nodes are read
+        private void collectTop(String prefix, int limit, List<Integer> slots, Set<Integer> seen) {
+            int low = bound(prefix, false);
+            int high = bound(prefix, true);
+            PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0]
+                    ? Integer.compare(b[0], a[0]) : Integer.compare(a[1], b[1]));
+            for (int left = low + treeSize, right = high + treeSize; left < right; left >>= 1, right >>= 1) {
+                if ((left & 1) == 1) {
+                    queue.add(node(left++));
+                }
+                if ((right & 1) == 1) {
+                    queue.add(node(--right));
+                }
+            }
+            while (!queue.isEmpty() && slots.size() < limit) {
+                int node = queue.poll()[2];
+                if (node < treeSize) {
+                    queue.add(node(2 * node));
+                    queue.add(node(2 * node + 1));
+                    continue;
+                }
+                int slot = slot(entries[node - treeSize]);
+                if (!removed.get(slot) && seen.add(slot)) {
+                    slots.add(slot);
+                }
+            }
+        }
+
+        // {max below the node, first leaf below it, node}; ties go to the leftmost, i.e. alphabetical, entry
+        private int[] node(int node) {
+            int leftmost = node;
+            while (leftmost < treeSize) {
+                leftmost *= 2;
+            }
+            return new int[]{tree[node], leftmost, node};
+        }
+
+        // First entry at or after the prefix, or with upper, first entry past every text starting with it
+        private int bound(String prefix, boolean upper) {
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int comparison = comparePrefix(entries[mid], prefix);
+                if (comparison < 0 || (upper && comparison == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Position of the entry, or -(insertion point + 1) as with Arrays.binarySearch
+        private int find(long entry) {
+            int low = 0;
+            int high = entries.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compareEntries(entries[mid], entry);
+                if (comparison < 0) {
+                    low = mid + 1;
+                } else if (comparison > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        // Compares the entry's text with the prefix over at most the prefix's length
+        private int comparePrefix(long entry, String prefix) {
+            String text = texts[slot(entry)];
+            int offset = offset(entry);
+            for (int i = 0; i < prefix.length(); i++) {
+                int position = offset + i;
+                char c = position < text.length() ? text.charAt(position) : SEPARATOR;
+                if (c == SEPARATOR) {
+                    return -1;
+                }
+                c = Character.toLowerCase(c);
+                if (c != prefix.charAt(i)) {
+                    return c < prefix.charAt(i) ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+
+        private boolean startsWith(long entry, String prefix) {
+            return comparePrefix(entry, prefix) == 0;
+        }
+
+        private int compareEntries(long a, long b) {
+            String textA = texts[slot(a)];
+            String textB = texts[slot(b)];
+            int i = offset(a);
+            int j = offset(b);
+            while (true) {
+                char c = i < textA.length() ? Character.toLowerCase(textA.charAt(i++)) : SEPARATOR;
+                char d = j < textB.length() ? Character.toLowerCase(textB.charAt(j++)) : SEPARATOR;
+                if (c != d) {
+                    return c == SEPARATOR ? -1 : d == SEPARATOR ? 1 : Character.compare(c, d);
+                }
+                if (c == SEPARATOR) {
+                    return Long.compare(a, b);
+                }
+            }
+        }
+    }
+
+    private static String normalize(String prefix) {
+        return prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int minute(LocalDateTime timestamp) {
+        return (int) (timestamp.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    private static long entry(int slot, int offset) {
+        return ((long) slot << 16) | offset;
+    }
+
+    private static int slot(long entry) {
+        return (int) (entry >>> 16);
+    }
+
+    private static int offset(long entry) {
+        return (int) (entry & MAX_OFFSET);
+    }
+
+    // Client id to slot with open addressing, a fraction of the size of a HashMap of boxed keys and values
+    private static final class SlotMap {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            for (int i = index(key, keys.length); values[i] != 0; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    return values[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int i = index(key, keys.length);
+            while (values[i] != 0 && keys[i] != key) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            if (values[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            // Stored plus one so that zero marks an empty cell
+            values[i] = value + 1;
+        }
+
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int i = index(key, keys.length);
+            while (values[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == 0) {
+                return -1;
+            }
+            int removedValue = values[i] - 1;
+            size--;
+            // Shift later members of the probe run back so lookups never stop at the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; values[j] != 0; j = (j + 1) & mask) {
+                int home = index(keys[j], keys.length);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = 0;
+            return removedValue;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    put(oldKeys[i], oldValues[i] - 1);
+                }
+            }
+        }
+
+        private static int index(long key, int length) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (length - 1);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.ClientSummary;
+import com.invoiceapp.repository.ClientRepository;
+import com.invoiceapp.repository.ClientSummaryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps client_summaries in step with the invoices. Writers call refresh with the clients they touched, in their
+// own transaction, and the touched clients' figures are recomputed from their invoices rather than adjusted by a
+// delta, because the latest invoice date cannot be undone by one.
+//
+// Every client gets its row when it is created, and refresh locks the rows before aggregating: concurrent writes
+// for one client take turns, and the later one's aggregate includes the earlier one's committed invoice.
+@Service
+@Transactional
+public class ClientSummaryService {
+
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    @Autowired
+    private ClientSummaryRepository summaryRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate chunkTransaction;
+
+    @PostConstruct
+    void init() {
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        seed();
+    }
+
+    // Adds the rows missing for clients that existed before the table did
+    private void seed() {
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = summaryRepository.findClientIdsWithoutSummaryAfter(afterId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            if (!ids.isEmpty()) {
+                List<Long> chunk = ids;
+                chunkTransaction.executeWithoutResult(status -> refresh(chunk));
+                afterId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == REBUILD_CHUNK_SIZE);
+    }
+
+    // Call after the client has been saved in the current transaction
+    public void recordCreated(Collection<Long> clientIds) {
+        List<ClientSummary> summaries = new ArrayList<>(clientIds.size());
+        for (Long clientId : clientIds) {
+            summaries.add(new ClientSummary(clientId));
+        }
+        summaryRepository.saveAll(summaries);
+    }
+
+    // Call after the clients' invoices have been written in the current transaction
+    public void refresh(Collection<Long> clientIds) {
+        Set<Long> ids = new LinkedHashSet<>(clientIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, ClientSummary> rows = new HashMap<>();
+        for (ClientSummary row : summaryRepository.findAllByIdForUpdate(ids)) {
+            rows.put(row.getClientId(), row);
+        }
+        Map<Long, ClientSummary> computed = new HashMap<>();
+        for (ClientSummary figures : clientRepository.computeSummaries(ids, LocalDate.now())) {
+            computed.put(figures.getClientId(), figures);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ClientSummary> changed = new ArrayList<>(ids.size());
+        for (Long clientId : ids) {
+            ClientSummary row = rows.computeIfAbsent(clientId, ClientSummary::new);
+            ClientSummary figures = computed.getOrDefault(clientId, new ClientSummary(clientId));
+            row.setInvoiceCount(figures.getInvoiceCount());
+            row.setOutstanding(figures.getOutstanding());
+            row.setOverdue(figures.getOverdue());
+            row.setLastInvoiceDate(figures.getLastInvoiceDate());
+            row.setRefreshedAt(now);
+            changed.add(row);
+        }
+        summaryRepository.saveAll(changed);
+    }
+
+    // Call before the client is deleted
+    public void recordClientDeleted(Long clientId) {
+        summaryRepository.findById(clientId).ifPresent(summaryRepository::delete);
+    }
+
+    // Periodic full rebuild, a chunk of clients per transaction, corrects anything changed outside the services
+    @Scheduled(fixedDelayString = "${client.summary.reconcile-interval-ms:3600000}",
+               initialDelayString = "${client.summary.reconcile-interval-ms:3600000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconcile() {
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            ids = clientRepository.findIdsAfter(afterId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            if (!ids.isEmpty()) {
+                List<Long> chunk = ids;
+                chunkTransaction.executeWithoutResult(status -> refresh(chunk));
+                afterId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == REBUILD_CHUNK_SIZE);
+        chunkTransaction.executeWithoutResult(status -> summaryRepository.deleteOrphans());
+    }
+}
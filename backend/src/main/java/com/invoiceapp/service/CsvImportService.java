@@ -0,0 +1,580 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.ImportProgress;
+import com.invoiceapp.dto.ImportResult;
+import com.invoiceapp.dto.InvoiceBatchResult;
+import com.invoiceapp.dto.RowError;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+import com.invoiceapp.repository.ClientRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bulk onboarding from CSV. Each file is read one record at a time and handled in chunks: a chunk is validated,
+// checked against existing clients and invoice numbers with one IN query each, and committed as JDBC batches,
+// so memory is bounded by the chunk size rather than the file, apart from the first line of each invoice number,
+// kept to catch an invoice whose rows are not together. Clients are loaded first so invoice rows can refer to
+// clients from the same upload by email. Rows already in the database are skipped, so a failed import can simply
+// be run again. An import given an id publishes its counts after every chunk for getProgress to return.
+@Service
+public class CsvImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvImportService.class);
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${invoice.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${invoice.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // Latest counts of each import still running, by the id its caller chose
+    private final Map<String, ImportProgress> running = new ConcurrentHashMap<>();
+
+    public ImportResult importCsv(MultipartFile clientsFile, MultipartFile invoicesFile) throws IOException {
+        return importCsv(clientsFile, invoicesFile, null);
+    }
+
+    // With an id, the import's progress can be read from getProgress(importId) while it runs
+    public ImportResult importCsv(MultipartFile clientsFile, MultipartFile invoicesFile, String importId) throws IOException {
+        long started = System.nanoTime();
+        if (importId != null && running.putIfAbsent(importId, new ImportProgress(null, 0, 0, 0, 0, 0)) != null) {
+            throw new IllegalArgumentException("An import with id '" + importId + "' is already running");
+        }
+        ImportResult result = new ImportResult();
+        try (CsvReader clientCsv = open(clientsFile); CsvReader invoiceCsv = open(invoicesFile)) {
+            // Check both headers before writing anything
+            ClientColumns clientColumns = clientCsv != null ? new ClientColumns(readHeader(clientCsv, "clients")) : null;
+            InvoiceColumns invoiceColumns = invoiceCsv != null ? new InvoiceColumns(readHeader(invoiceCsv, "invoices")) : null;
+            Progress progress = new Progress(importId, started);
+            if (clientCsv != null) {
+                importClients(clientCsv, clientColumns, result.getClients(), progress);
+            }
+            if (invoiceCsv != null) {
+                importInvoices(invoiceCsv, invoiceColumns, result.getInvoices(), progress);
+            }
+        } finally {
+            if (importId != null) {
+                running.remove(importId);
+            }
+        }
+        result.setElapsedMs((System.nanoTime() - started) / 1_000_000);
+        log.info("CSV import finished in {} ms: clients {} created, {} skipped, {} failed; invoices {} created, {} skipped, {} failed",
+                result.getElapsedMs(), result.getClients().getCreated(), result.getClients().getSkipped(),
+                result.getClients().getFailed(), result.getInvoices().getCreated(), result.getInvoices().getSkipped(),
+                result.getInvoices().getFailed());
+        return result;
+    }
+
+    public Optional<ImportProgress> getProgress(String importId) {
+        return Optional.ofNullable(running.get(importId));
+    }
+
+    private void importClients(CsvReader csv, ClientColumns columns, ImportResult.Section section, Progress progress) {
+        List<Client> chunk = new ArrayList<>(chunkSize);
+        List<Long> lines = new ArrayList<>(chunkSize);
+        IOException failure = null;
+        try {
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (isBlank(record)) {
+                    continue;
+                }
+                section.addRows(1);
+                Client client = columns.toClient(record);
+                String error = validateClient(client);
+                if (error != null) {
+                    section.addError(csv.getRecordLine(), error, maxReportedErrors);
+                    continue;
+                }
+                chunk.add(client);
+                lines.add(csv.getRecordLine());
+                if (chunk.size() >= chunkSize) {
+                    saveClientChunk(chunk, lines, section);
+                    releaseChunk();
+                    chunk.clear();
+                    lines.clear();
+                    progress.report("clients", section);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        if (!chunk.isEmpty()) {
+            saveClientChunk(chunk, lines, section);
+        }
+        if (failure != null) {
+            section.addError(csv.getRecordLine(), "Could not read the file past this line: " + failure.getMessage(), maxReportedErrors);
+        }
+        progress.report("clients", section);
+    }
+
+    private void saveClientChunk(List<Client> chunk, List<Long> lines, ImportResult.Section section) {
+        Set<String> emails = new HashSet<>();
+        for (Client client : chunk) {
+            emails.add(client.getEmail());
+        }
+        // One lookup for the whole chunk; the set also catches repeats within the chunk
+        Set<String> taken = new HashSet<>(clientRepository.findEmailsIn(emails));
+        List<Client> fresh = new ArrayList<>(chunk.size());
+        List<Long> freshLines = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (taken.add(chunk.get(i).getEmail())) {
+                fresh.add(chunk.get(i));
+                freshLines.add(lines.get(i));
+            } else {
+                section.addSkipped(1);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        try {
+            clientService.saveClients(fresh);
+            section.addCreated(fresh.size());
+        } catch (RuntimeException e) {
+            // Retry one at a time to find the rows the database rejected
+            for (int i = 0; i < fresh.size(); i++) {
+                Client client = fresh.get(i);
+                client.setId(null);
+                try {
+                    clientService.saveClient(client);
+                    section.addCreated(1);
+                } catch (RuntimeException rowError) {
+                    client.setId(null);
+                    section.addError(freshLines.get(i), "Error creating client: " +
+                            NestedExceptionUtils.getMostSpecificCause(rowError).getMessage(), maxReportedErrors);
+                }
+            }
+        }
+    }
+
+    private String validateClient(Client client) {
+        if (client.getEmail() == null) {
+            return "Email is required";
+        }
+        Set<ConstraintViolation<Client>> violations = validator.validate(client);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        return null;
+    }
+
+    // One row per line item; consecutive rows with the same invoice_number make up one invoice
+    private void importInvoices(CsvReader csv, InvoiceColumns columns, ImportResult.Section section, Progress progress) {
+        List<PendingInvoice> chunk = new ArrayList<>(chunkSize);
+        Map<String, Long> firstLines = new HashMap<>();
+        PendingInvoice current = null;
+        IOException failure = null;
+        try {
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (isBlank(record)) {
+                    continue;
+                }
+                section.addRows(1);
+                String number = value(record, columns.invoiceNumber);
+                if (current == null || number == null || !number.equals(current.number)) {
+                    if (chunk.size() >= chunkSize) {
+                        saveInvoiceChunk(chunk, section);
+                        releaseChunk();
+                        chunk.clear();
+                        progress.report("invoices", section);
+                    }
+                    current = startInvoice(columns, record, csv.getRecordLine(), number);
+                    Long firstLine = number == null ? null : firstLines.putIfAbsent(number, csv.getRecordLine());
+                    if (firstLine != null) {
+                        separatedRows(chunk, current, firstLine);
+                    }
+                    chunk.add(current);
+                }
+                addItem(current, columns, record, csv.getRecordLine());
+            }
+        } catch (IOException e) {
+            failure = e;
+            // The invoice being read may be missing items that sit past the unreadable line
+            if (current != null) {
+                chunk.remove(current);
+                section.addError(current.line, "Not imported because the file could not be read to its end", maxReportedErrors);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveInvoiceChunk(chunk, section);
+        }
+        if (failure != null) {
+            section.addError(csv.getRecordLine(), "Could not read the file past this line: " + failure.getMessage(), maxReportedErrors);
+        }
+        progress.report("invoices", section);
+    }
+
+    // Rows for an invoice number that already had rows further up, with other invoices in between. They are
+    // reported rather than merged, and the earlier rows are not imported either while still unsaved, since
+    // neither part is the whole invoice.
+    private static void separatedRows(List<PendingInvoice> chunk, PendingInvoice later, long firstLine) {
+        later.fail("Rows for invoice " + later.number + " must be consecutive, but it already started at line "
+                + firstLine);
+        for (PendingInvoice earlier : chunk) {
+            if (later.number.equals(earlier.number)) {
+                earlier.fail("More rows for invoice " + earlier.number + " follow at line " + later.line
+                        + ", after other invoices; rows of one invoice must be consecutive");
+            }
+        }
+    }
+
+    private PendingInvoice startInvoice(InvoiceColumns columns, List<String> record, long line, String number) {
+        PendingInvoice pending = new PendingInvoice(line, number, value(record, columns.clientEmail));
+        Invoice invoice = pending.invoice;
+        invoice.setInvoiceNumber(number);
+        invoice.setItems(new ArrayList<>());
+        invoice.setNotes(value(record, columns.notes));
+        invoice.setTerms(value(record, columns.terms));
+        try {
+            invoice.setInvoiceDate(parseDate(record, columns.invoiceDate, "invoice_date"));
+            invoice.setDueDate(parseDate(record, columns.dueDate, "due_date"));
+            BigDecimal taxRate = parseDecimal(record, columns.taxRate, "tax_rate");
+            if (taxRate != null) {
+                invoice.setTaxRate(taxRate);
+            }
+            String status = value(record, columns.paymentStatus);
+            if (status != null) {
+                invoice.setPaymentStatus(parseStatus(status));
+            }
+        } catch (IllegalArgumentException e) {
+            pending.fail(e.getMessage());
+        }
+        if (pending.clientEmail == null) {
+            pending.fail("Client email is required");
+        }
+        return pending;
+    }
+
+    private void addItem(PendingInvoice pending, InvoiceColumns columns, List<String> record, long line) {
+        if (pending.error != null) {
+            return;
+        }
+        String description = value(record, columns.description);
+        try {
+            BigDecimal quantity = parseDecimal(record, columns.quantity, "quantity");
+            BigDecimal unitPrice = parseDecimal(record, columns.unitPrice, "unit_price");
+            BigDecimal discountPercent = parseDecimal(record, columns.itemDiscountPercent, "item_discount_percent");
+            BigDecimal taxRate = parseDecimal(record, columns.itemTaxRate, "item_tax_rate");
+            // Exported invoices without items come through as a row with empty item columns
+            if (description == null && quantity == null && unitPrice == null) {
+                return;
+            }
+            InvoiceItem item = new InvoiceItem(description, quantity, unitPrice);
+            // Left empty, the line takes no discount and the invoice's tax rate
+            item.setDiscountPercent(discountPercent);
+            item.setTaxRate(taxRate);
+            pending.invoice.getItems().add(item);
+        } catch (IllegalArgumentException e) {
+            pending.fail("Line " + line + ": " + e.getMessage());
+        }
+    }
+
+    private void saveInvoiceChunk(List<PendingInvoice> chunk, ImportResult.Section section) {
+        Set<String> emails = new HashSet<>();
+        Set<String> numbers = new HashSet<>();
+        for (PendingInvoice pending : chunk) {
+            if (pending.error == null) {
+                emails.add(pending.clientEmail);
+                if (pending.number != null) {
+                    numbers.add(pending.number);
+                }
+            }
+        }
+        Map<String, Long> clientIds = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (Object[] row : clientRepository.findIdsAndEmailsIn(emails)) {
+                clientIds.put((String) row[1], (Long) row[0]);
+            }
+        }
+        Set<String> taken = numbers.isEmpty() ? new HashSet<>() : new HashSet<>(invoiceRepository.findInvoiceNumbersIn(numbers));
+
+        List<Invoice> batch = new ArrayList<>(chunk.size());
+        List<Long> lines = new ArrayList<>(chunk.size());
+        for (PendingInvoice pending : chunk) {
+            if (pending.error != null) {
+                section.addError(pending.line, pending.error, maxReportedErrors);
+                continue;
+            }
+            Long clientId = clientIds.get(pending.clientEmail);
+            if (clientId == null) {
+                section.addError(pending.line, "Client not found with email: " + pending.clientEmail, maxReportedErrors);
+                continue;
+            }
+            if (pending.number != null && !taken.add(pending.number)) {
+                section.addSkipped(1);
+                continue;
+            }
+            Client client = new Client();
+            client.setId(clientId);
+            pending.invoice.setClient(client);
+            batch.add(pending.invoice);
+            lines.add(pending.line);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        InvoiceBatchResult created = invoiceService.createInvoices(batch);
+        section.addCreated(created.getCreatedCount());
+        for (RowError error : created.getErrors()) {
+            section.addError(lines.get(error.getRow()), error.getMessage(), maxReportedErrors);
+        }
+    }
+
+    // With open-in-view the request keeps one persistence context across every chunk's transaction;
+    // clearing it stops saved entities from piling up and slowing each flush
+    private void releaseChunk() {
+        entityManager.clear();
+    }
+
+
+    private static CsvReader open(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        return new CsvReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Integer> readHeader(CsvReader csv, String file) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new RuntimeException("The " + file + " file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(normalize(header.get(i)), i);
+        }
+        return columns;
+    }
+
+    // "zip_code", "zipCode" and "Zip Code" all name the same column; this also drops a byte order mark
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static int column(Map<String, Integer> columns, String name, boolean required, String file) {
+        Integer index = columns.get(normalize(name));
+        if (index == null && required) {
+            throw new RuntimeException("Missing required column '" + name + "' in the " + file + " file");
+        }
+        return index != null ? index : -1;
+    }
+
+    private static String value(List<String> record, int index) {
+        if (index < 0 || index >= record.size()) {
+            return null;
+        }
+        String text = record.get(index).trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        // Undo the formula guard the CSV export adds, so exported files import unchanged
+        if (text.length() > 1 && text.charAt(0) == '\'' && "=+-@\t\r".indexOf(text.charAt(1)) >= 0) {
+            text = text.substring(1);
+        }
+        return text;
+    }
+
+    private static boolean isBlank(List<String> record) {
+        for (String field : record) {
+            if (!field.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static LocalDate parseDate(List<String> record, int index, String name) {
+        String text = value(record, index);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + text + "', expected yyyy-MM-dd");
+        }
+    }
+
+    private static BigDecimal parseDecimal(List<String> record, int index, String name) {
+        String text = value(record, index);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + text + "'");
+        }
+    }
+
+    private static Invoice.PaymentStatus parseStatus(String text) {
+        try {
+            return Invoice.PaymentStatus.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid payment_status '" + text + "'");
+        }
+    }
+
+    private static final class ClientColumns {
+        final int name;
+        final int email;
+        final int phone;
+        final int address;
+        final int city;
+        final int state;
+        final int zipCode;
+        final int country;
+        final int gstNumber;
+
+        ClientColumns(Map<String, Integer> columns) {
+            name = column(columns, "name", true, "clients");
+            email = column(columns, "email", true, "clients");
+            phone = column(columns, "phone", false, "clients");
+            address = column(columns, "address", false, "clients");
+            city = column(columns, "city", false, "clients");
+            state = column(columns, "state", false, "clients");
+            zipCode = column(columns, "zip_code", false, "clients");
+            country = column(columns, "country", false, "clients");
+            gstNumber = column(columns, "gst_number", false, "clients");
+        }
+
+        Client toClient(List<String> record) {
+            Client client = new Client(value(record, name), value(record, email));
+            client.setPhone(value(record, phone));
+            client.setAddress(value(record, address));
+            client.setCity(value(record, city));
+            client.setState(value(record, state));
+            client.setZipCode(value(record, zipCode));
+            client.setCountry(value(record, country));
+            client.setGstNumber(value(record, gstNumber));
+            return client;
+        }
+    }
+
+    // Column names match the CSV export, so an export from another installation can be loaded as is
+    private static final class InvoiceColumns {
+        final int invoiceNumber;
+        final int clientEmail;
+        final int invoiceDate;
+        final int dueDate;
+        final int paymentStatus;
+        final int taxRate;
+        final int notes;
+        final int terms;
+        final int description;
+        final int quantity;
+        final int unitPrice;
+        final int itemDiscountPercent;
+        final int itemTaxRate;
+
+        InvoiceColumns(Map<String, Integer> columns) {
+            invoiceNumber = column(columns, "invoice_number", false, "invoices");
+            clientEmail = column(columns, "client_email", true, "invoices");
+            invoiceDate = column(columns, "invoice_date", true, "invoices");
+            dueDate = column(columns, "due_date", true, "invoices");
+            paymentStatus = column(columns, "payment_status", false, "invoices");
+            taxRate = column(columns, "tax_rate", false, "invoices");
+            notes = column(columns, "notes", false, "invoices");
+            terms = column(columns, "terms", false, "invoices");
+            description = column(columns, "description", true, "invoices");
+            quantity = column(columns, "quantity", true, "invoices");
+            unitPrice = column(columns, "unit_price", true, "invoices");
+            itemDiscountPercent = column(columns, "item_discount_percent", false, "invoices");
+            itemTaxRate = column(columns, "item_tax_rate", false, "invoices");
+        }
+    }
+
+    private final class Progress {
+        final String importId;
+        final long started;
+
+        Progress(String importId, long started) {
+            this.importId = importId;
+            this.started = started;
+        }
+
+        void report(String file, ImportResult.Section section) {
+            log.info("Importing {}: {} rows read, {} created, {} skipped, {} failed", file, section.getRows(),
+                    section.getCreated(), section.getSkipped(), section.getFailed());
+            if (importId != null) {
+                running.put(importId, new ImportProgress(file, section.getRows(), section.getCreated(),
+                        section.getSkipped(), section.getFailed(), (System.nanoTime() - started) / 1_000_000));
+            }
+        }
+    }
+
+    private static final class PendingInvoice {
+        final long line;
+        final String number;
+        final String clientEmail;
+        final Invoice invoice = new Invoice();
+        String error;
+
+        PendingInvoice(long line, String number, String clientEmail) {
+            this.line = line;
+            this.number = number;
+            this.clientEmail = clientEmail;
+        }
+
+        // Keeps the first problem found in the invoice's rows
+        void fail(String message) {
+            if (error == null) {
+                error = message;
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.DashboardSummary;
+import com.invoiceapp.dto.InvoiceSummary;
+import com.invoiceapp.entity.DashboardRollup;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.repository.DashboardRollupRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps the dashboard figures in a single rollup row that invoice writes adjust in their own transaction,
+// so the summary never has to aggregate the invoices table on the request path. The row is seeded at startup.
+//
+// Every write that adjusts the customer count first updates the rollup row and only then checks the client's
+// other invoices. The row lock is held until commit, so concurrent writes for the same client take turns and
+// the later one's check sees the earlier one's committed invoice instead of both counting the same new customer.
+@Service
+@Transactional
+public class DashboardService {
+
+    private static final int RECENT_INVOICES = 5;
+
+    @Autowired
+    private DashboardRollupRepository rollupRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate rebuildTransaction;
+
+    @PostConstruct
+    void init() {
+        rebuildTransaction = new TransactionTemplate(transactionManager);
+        rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        seed();
+    }
+
+    private void seed() {
+        try {
+            rebuildTransaction.executeWithoutResult(status -> {
+                if (!rollupRepository.existsById(DashboardRollup.SINGLETON_ID)) {
+                    rebuild();
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the row first
+        }
+    }
+
+    // Read-only so it can be served by a replica; without the rollup row (not seeded yet, or removed) the
+    // figures are aggregated directly rather than written from a read path
+    @Transactional(readOnly = true)
+    public DashboardSummary getSummary() {
+        DashboardRollup rollup = rollupRepository.findById(DashboardRollup.SINGLETON_ID)
+                .orElseGet(rollupRepository::computeFromInvoices);
+        List<InvoiceSummary> recent = invoiceRepository.findSummaries(null, null, null, RECENT_INVOICES);
+        return new DashboardSummary(rollup.getInvoiceCount(), rollup.getPendingCount(),
+                rollup.getPaidRevenue(), rollup.getCustomerCount(), recent);
+    }
+
+    // Call after the invoices have been saved in the current transaction
+    public void recordCreated(Collection<Invoice> invoices) {
+        Map<Long, Long> createdPerClient = new HashMap<>();
+        long pending = 0;
+        BigDecimal paidRevenue = BigDecimal.ZERO;
+        for (Invoice invoice : invoices) {
+            createdPerClient.merge(invoice.getClient().getId(), 1L, Long::sum);
+            pending += pendingContribution(invoice.getPaymentStatus());
+            paidRevenue = paidRevenue.add(paidContribution(invoice.getPaymentStatus(), invoice.getTotal()));
+        }
+        if (invoices.isEmpty()) {
+            return;
+        }
+        lockAndApply(invoices.size(), pending, paidRevenue);
+
+        // A client is a new customer when all of its invoices are the ones just created
+        long newCustomers = 0;
+        for (Object[] row : invoiceRepository.countByClientIds(createdPerClient.keySet())) {
+            if (((Long) row[1]).equals(createdPerClient.get((Long) row[0]))) {
+                newCustomers++;
+            }
+        }
+        applyDelta(0, 0, BigDecimal.ZERO, newCustomers);
+    }
+
+    // Call with the invoice's status, total and client as they were before the update was applied
+    public void recordChanged(Invoice.PaymentStatus oldStatus, BigDecimal oldTotal, Long oldClientId, Invoice invoice) {
+        long pending = pendingContribution(invoice.getPaymentStatus()) - pendingContribution(oldStatus);
+        BigDecimal paidRevenue = paidContribution(invoice.getPaymentStatus(), invoice.getTotal())
+                .subtract(paidContribution(oldStatus, oldTotal));
+
+        Long newClientId = invoice.getClient().getId();
+        if (newClientId.equals(oldClientId)) {
+            applyDelta(0, pending, paidRevenue, 0);
+            return;
+        }
+        lockAndApply(0, pending, paidRevenue);
+        long customers = 0;
+        if (!invoiceRepository.existsByClientIdAndIdNot(oldClientId, invoice.getId())) {
+            customers--;
+        }
+        if (!invoiceRepository.existsByClientIdAndIdNot(newClientId, invoice.getId())) {
+            customers++;
+        }
+        applyDelta(0, 0, BigDecimal.ZERO, customers);
+    }
+
+    // Call after a bulk status change of count invoices; PAID is not supported because revenue would need their totals
+    public void recordStatusChange(Invoice.PaymentStatus from, Invoice.PaymentStatus to, long count) {
+        if (from == Invoice.PaymentStatus.PAID || to == Invoice.PaymentStatus.PAID) {
+            throw new IllegalArgumentException("Bulk status changes to or from PAID are not supported");
+        }
+        long pending = (pendingContribution(to) - pendingContribution(from)) * count;
+        applyDelta(0, pending, BigDecimal.ZERO, 0);
+    }
+
+    // Call before the invoice is deleted
+    public void recordDeleted(Invoice invoice) {
+        lockAndApply(-1, -pendingContribution(invoice.getPaymentStatus()),
+                paidContribution(invoice.getPaymentStatus(), invoice.getTotal()).negate());
+        long customers = invoiceRepository.existsByClientIdAndIdNot(invoice.getClient().getId(), invoice.getId()) ? 0 : -1;
+        applyDelta(0, 0, BigDecimal.ZERO, customers);
+    }
+
+    // Call before the client is deleted; its invoices are removed with it, so they come off the figures in one step
+    public void recordClientDeleted(Long clientId) {
+        lockAndApply(0, 0, BigDecimal.ZERO);
+        DashboardRollup removed = rollupRepository.computeForClient(clientId);
+        applyDelta(-removed.getInvoiceCount(), -removed.getPendingCount(), removed.getPaidRevenue().negate(),
+                -removed.getCustomerCount());
+    }
+
+    // Periodic full rebuild corrects any drift from concurrent writes or changes made outside the services
+    @Scheduled(fixedDelayString = "${dashboard.rollup.reconcile-interval-ms:3600000}",
+               initialDelayString = "${dashboard.rollup.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    public DashboardRollup rebuild() {
+        // Holding the row lock while aggregating makes concurrent deltas wait and apply on top of the result
+        DashboardRollup rollup = rollupRepository.findByIdForUpdate(DashboardRollup.SINGLETON_ID).orElse(null);
+        DashboardRollup computed = rollupRepository.computeFromInvoices();
+        if (rollup == null) {
+            rollup = new DashboardRollup();
+            rollup.setId(DashboardRollup.SINGLETON_ID);
+        }
+        rollup.setInvoiceCount(computed.getInvoiceCount());
+        rollup.setPendingCount(computed.getPendingCount());
+        rollup.setPaidRevenue(computed.getPaidRevenue());
+        rollup.setCustomerCount(computed.getCustomerCount());
+        rollup.setRebuiltAt(LocalDateTime.now());
+        return rollupRepository.save(rollup);
+    }
+
+    // Always issues the update, even with nothing to add, because its row lock orders the customer checks that follow
+    private void lockAndApply(long invoices, long pending, BigDecimal paidRevenue) {
+        rollupRepository.applyDelta(DashboardRollup.SINGLETON_ID, invoices, pending, paidRevenue, 0);
+    }
+
+    private void applyDelta(long invoices, long pending, BigDecimal paidRevenue, long customers) {
+        if (invoices == 0 && pending == 0 && paidRevenue.signum() == 0 && customers == 0) {
+            return;
+        }
+        // No row means nothing to adjust: it was not seeded, and the next rebuild starts from the invoices table
+        rollupRepository.applyDelta(DashboardRollup.SINGLETON_ID, invoices, pending, paidRevenue, customers);
+    }
+
+    private static long pendingContribution(Invoice.PaymentStatus status) {
+        return status == Invoice.PaymentStatus.PENDING ? 1 : 0;
+    }
+
+    private static BigDecimal paidContribution(Invoice.PaymentStatus status, BigDecimal total) {
+        return status == Invoice.PaymentStatus.PAID && total != null ? total : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,243 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.EmailSendResult;
+import com.invoiceapp.entity.EmailOutboxMessage;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.repository.EmailOutboxRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Persistent queue for outgoing invoice emails. Requests only insert a row; a poller claims due rows and
+// hands them in batches to a fixed worker pool that renders the attachments and sends each batch over one
+// pooled SMTP connection, retrying failures with exponential backoff. Claims are conditional updates, so
+// several nodes can drain the same table, and so is recording the outcome: it only applies while the row still
+// carries the claim the send started with.
+@Service
+public class EmailOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${email.outbox.workers:4}")
+    private int workers;
+
+    @Value("${email.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-initial-ms:30000}")
+    private long backoffInitialMs;
+
+    @Value("${email.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${email.outbox.stale-after-ms:600000}")
+    private long staleAfterMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private ExecutorService workerPool;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workerPool.shutdownNow();
+    }
+
+    public EmailOutboxMessage enqueueInvoiceEmail(Long invoiceId, String toEmail, String subject, String body) {
+        return outboxRepository.save(new EmailOutboxMessage(EmailOutboxMessage.Type.INVOICE, invoiceId, toEmail, subject, body));
+    }
+
+    public EmailOutboxMessage enqueueReminder(Long invoiceId) {
+        return outboxRepository.save(new EmailOutboxMessage(EmailOutboxMessage.Type.REMINDER, invoiceId, null, null, null));
+    }
+
+    // Queues one reminder per invoice, none of them sent before notBefore
+    public List<EmailOutboxMessage> enqueueReminders(Collection<Long> invoiceIds, LocalDateTime notBefore) {
+        List<EmailOutboxMessage> messages = new ArrayList<>(invoiceIds.size());
+        for (Long invoiceId : invoiceIds) {
+            EmailOutboxMessage message = new EmailOutboxMessage(EmailOutboxMessage.Type.REMINDER, invoiceId, null, null, null);
+            message.setNextAttemptAt(notBefore);
+            messages.add(message);
+        }
+        return outboxRepository.saveAll(messages);
+    }
+
+    public Optional<EmailOutboxMessage> getMessage(Long id) {
+        return outboxRepository.findById(id);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        // Millisecond precision survives every timestamp column, so the claim can be matched again when recording
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        int released = outboxRepository.releaseStale(now.minus(Duration.ofMillis(staleAfterMs)), now);
+        if (released > 0) {
+            log.warn("Released {} outbox messages left in SENDING by a stopped worker", released);
+        }
+
+        // Only take as many messages as idle workers can send in one batch each, so nothing claimed sits in a queue
+        int capacity = workers - inFlight.get();
+        if (capacity <= 0) {
+            return;
+        }
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : outboxRepository.findIdsReadyToSend(now, PageRequest.of(0, capacity * batchSize))) {
+            if (outboxRepository.claim(id, now) == 1) {
+                claimed.add(id);
+            }
+        }
+        for (int start = 0; start < claimed.size(); start += batchSize) {
+            List<Long> batch = claimed.subList(start, Math.min(start + batchSize, claimed.size()));
+            inFlight.incrementAndGet();
+            workerPool.execute(() -> {
+                try {
+                    deliver(batch, now);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    // Builds every message of the batch and sends them over a single SMTP connection
+    private void deliver(List<Long> ids, LocalDateTime claimedAt) {
+        List<EmailOutboxMessage> messages = new ArrayList<>(ids.size());
+        for (EmailOutboxMessage message : outboxRepository.findAllById(ids)) {
+            // Released as stale before this worker got to it; the newer claim sends it
+            if (message.getStatus() == EmailOutboxMessage.Status.SENDING && claimedAt.equals(message.getClaimedAt())) {
+                messages.add(message);
+            }
+        }
+        Set<Long> invoiceIds = new HashSet<>();
+        for (EmailOutboxMessage message : messages) {
+            invoiceIds.add(message.getInvoiceId());
+        }
+        Map<Long, Invoice> invoices = new HashMap<>();
+        for (Invoice invoice : invoiceRepository.findDetailByIdIn(invoiceIds)) {
+            invoices.put(invoice.getId(), invoice);
+        }
+
+        List<EmailOutboxMessage> sending = new ArrayList<>(messages.size());
+        List<MimeMessage> mimeMessages = new ArrayList<>(messages.size());
+        for (EmailOutboxMessage message : messages) {
+            Invoice invoice = invoices.get(message.getInvoiceId());
+            if (invoice == null) {
+                // Retrying cannot bring a deleted invoice back
+                recordFailure(message, "Invoice not found with id: " + message.getInvoiceId(), false);
+                continue;
+            }
+            // Reminders can go out hours after they were queued; by then the invoice may no longer be owed
+            if (message.getType() == EmailOutboxMessage.Type.REMINDER && !isOwed(invoice)) {
+                message.setStatus(EmailOutboxMessage.Status.SKIPPED);
+                message.setLastError("Reminder not sent: invoice is " + invoice.getPaymentStatus());
+                continue;
+            }
+            try {
+                mimeMessages.add(build(message, invoice));
+                sending.add(message);
+            } catch (RuntimeException e) {
+                recordFailure(message, NestedExceptionUtils.getMostSpecificCause(e).getMessage(), true);
+            }
+        }
+
+        List<EmailSendResult> results = emailService.sendBatch(mimeMessages);
+        for (int i = 0; i < sending.size(); i++) {
+            EmailOutboxMessage message = sending.get(i);
+            EmailSendResult result = results.get(i);
+            if (result.isSent()) {
+                message.setStatus(EmailOutboxMessage.Status.SENT);
+                message.setSentAt(LocalDateTime.now());
+                message.setLastError(null);
+            } else {
+                recordFailure(message, result.getError(), true);
+            }
+        }
+
+        for (EmailOutboxMessage message : messages) {
+            message.setAttempts(message.getAttempts() + 1);
+            int updated = outboxRepository.complete(message.getId(), claimedAt, message.getStatus(),
+                    message.getAttempts(), message.getNextAttemptAt(), message.getLastError(), message.getSentAt());
+            if (updated == 0) {
+                log.warn("Outbox message {} was released as stale while this send ran; its outcome ({}) was "
+                        + "discarded and a newer attempt may send it again", message.getId(), message.getStatus());
+            }
+        }
+    }
+
+    private static boolean isOwed(Invoice invoice) {
+        return invoice.getPaymentStatus() == Invoice.PaymentStatus.PENDING
+                || invoice.getPaymentStatus() == Invoice.PaymentStatus.OVERDUE;
+    }
+
+    private MimeMessage build(EmailOutboxMessage message, Invoice invoice) {
+        if (message.getType() == EmailOutboxMessage.Type.REMINDER) {
+            return emailService.buildPaymentReminder(invoice);
+        }
+        String toEmail = message.getToEmail() != null ? message.getToEmail() : invoice.getClient().getEmail();
+        return emailService.buildInvoiceEmail(invoice, toEmail, message.getSubject(), message.getBody());
+    }
+
+    private void recordFailure(EmailOutboxMessage message, String error, boolean retryable) {
+        if (error != null && error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        message.setLastError(error);
+
+        int attempt = message.getAttempts() + 1;
+        if (!retryable || attempt >= maxAttempts) {
+            message.setStatus(EmailOutboxMessage.Status.FAILED);
+            log.warn("Giving up on outbox message {} after {} attempts: {}", message.getId(), attempt, error);
+            return;
+        }
+        long delay = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempt - 1, 30));
+        message.setStatus(EmailOutboxMessage.Status.PENDING);
+        message.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+    }
+}
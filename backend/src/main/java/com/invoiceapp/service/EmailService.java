@@ -1,6 +1,11 @@
 package com.invoiceapp.service;
 
+import com.invoiceapp.dto.EmailSendResult;
 import com.invoiceapp.entity.Invoice;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
@@ -9,21 +14,62 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class EmailService {
 
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private SmtpTransportPool transportPool;
+
     @Autowired
     private PdfService pdfService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${spring.mail.username:your-email@gmail.com}")
     private String fromEmail;
 
+    private Timer connectTimer;
+    private Timer connectFailedTimer;
+    private Timer sentTimer;
+    private Timer rejectedTimer;
+    private Timer failedTimer;
+    private Counter unreachableFailures;
+    private Counter rejectedFailures;
+    private Counter errorFailures;
+
+    @PostConstruct
+    void init() {
+        // Waiting for a pooled connection plus any handshake, kept apart from the time spent sending
+        connectTimer = Timer.builder("email.connect").tag("outcome", "success").register(meterRegistry);
+        connectFailedTimer = Timer.builder("email.connect").tag("outcome", "failure").register(meterRegistry);
+        sentTimer = Timer.builder("email.send").tag("outcome", "sent").register(meterRegistry);
+        rejectedTimer = Timer.builder("email.send").tag("outcome", "rejected").register(meterRegistry);
+        failedTimer = Timer.builder("email.send").tag("outcome", "failed").register(meterRegistry);
+        unreachableFailures = Counter.builder("email.send.failures").tag("reason", "unreachable").register(meterRegistry);
+        rejectedFailures = Counter.builder("email.send.failures").tag("reason", "rejected").register(meterRegistry);
+        errorFailures = Counter.builder("email.send.failures").tag("reason", "error").register(meterRegistry);
+    }
+
     public void sendInvoiceEmail(Invoice invoice, String toEmail, String subject, String body) {
+        send(buildInvoiceEmail(invoice, toEmail, subject, body));
+    }
+
+    public void sendPaymentReminder(Invoice invoice) {
+        send(buildPaymentReminder(invoice));
+    }
+
+    public MimeMessage buildInvoiceEmail(Invoice invoice, String toEmail, String subject, String body) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true);
@@ -32,7 +78,7 @@ public class EmailService {
             helper.setTo(toEmail);
             helper.setSubject(subject != null ? subject : "Invoice " + invoice.getInvoiceNumber());
 
-            String emailBody = body != null ? body : 
+            String emailBody = body != null ? body :
                 "Dear " + invoice.getClient().getName() + ",\n\n" +
                 "Please find attached invoice " + invoice.getInvoiceNumber() + " for your review.\n\n" +
                 "Invoice Details:\n" +
@@ -46,28 +92,84 @@ public class EmailService {
 
             helper.setText(emailBody);
 
-            // Generate and attach PDF
-            byte[] pdfBytes = pdfService.generateInvoicePdf(invoice);
-            helper.addAttachment("Invoice_" + invoice.getInvoiceNumber() + ".pdf", 
+            // Attached from the cache when already rendered, but not added to it: a run of outbox sends would
+            // otherwise push out the copies that downloads are served from
+            byte[] pdfBytes = pdfService.readInvoicePdf(invoice);
+            helper.addAttachment("Invoice_" + invoice.getInvoiceNumber() + ".pdf",
                     new ByteArrayResource(pdfBytes));
 
-            mailSender.send(message);
+            return message;
 
         } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send email: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to build email: " + e.getMessage(), e);
         }
     }
 
-    public void sendPaymentReminder(Invoice invoice) {
+    public MimeMessage buildPaymentReminder(Invoice invoice) {
         String subject = "Payment Reminder - Invoice " + invoice.getInvoiceNumber();
         String body = "Dear " + invoice.getClient().getName() + ",\n\n" +
-                "This is a friendly reminder that invoice " + invoice.getInvoiceNumber() + 
+                "This is a friendly reminder that invoice " + invoice.getInvoiceNumber() +
                 " is due on " + invoice.getDueDate() + ".\n\n" +
                 "Total Amount Due: $" + invoice.getTotal() + "\n\n" +
                 "Please process the payment at your earliest convenience.\n\n" +
                 "Thank you,\n" +
                 "Your Company Name";
 
-        sendInvoiceEmail(invoice, invoice.getClient().getEmail(), subject, body);
+        return buildInvoiceEmail(invoice, invoice.getClient().getEmail(), subject, body);
+    }
+
+    // Sends the messages over one pooled connection and reports each outcome in the same order
+    public List<EmailSendResult> sendBatch(List<MimeMessage> messages) {
+        List<EmailSendResult> results = new ArrayList<>(messages.size());
+        SmtpTransportPool.PooledTransport pooled = null;
+        try {
+            for (MimeMessage message : messages) {
+                if (pooled == null) {
+                    long connectStarted = System.nanoTime();
+                    try {
+                        pooled = transportPool.borrow();
+                        connectTimer.record(System.nanoTime() - connectStarted, TimeUnit.NANOSECONDS);
+                    } catch (MessagingException e) {
+                        connectFailedTimer.record(System.nanoTime() - connectStarted, TimeUnit.NANOSECONDS);
+                        // The server is unreachable; fail the rest without a connection attempt each
+                        String error = "Failed to connect to mail server: " + e.getMessage();
+                        unreachableFailures.increment(messages.size() - results.size());
+                        while (results.size() < messages.size()) {
+                            results.add(EmailSendResult.failure(error));
+                        }
+                        return results;
+                    }
+                }
+                long sendStarted = System.nanoTime();
+                try {
+                    transportPool.send(pooled, message);
+                    sentTimer.record(System.nanoTime() - sendStarted, TimeUnit.NANOSECONDS);
+                    results.add(EmailSendResult.success());
+                } catch (SendFailedException e) {
+                    // Rejected recipients leave the connection usable
+                    rejectedTimer.record(System.nanoTime() - sendStarted, TimeUnit.NANOSECONDS);
+                    rejectedFailures.increment();
+                    results.add(EmailSendResult.failure("Failed to send email: " + e.getMessage()));
+                } catch (MessagingException e) {
+                    failedTimer.record(System.nanoTime() - sendStarted, TimeUnit.NANOSECONDS);
+                    errorFailures.increment();
+                    results.add(EmailSendResult.failure("Failed to send email: " + e.getMessage()));
+                    transportPool.discard(pooled);
+                    pooled = null;
+                }
+            }
+            return results;
+        } finally {
+            if (pooled != null) {
+                transportPool.release(pooled);
+            }
+        }
+    }
+
+    private void send(MimeMessage message) {
+        EmailSendResult result = sendBatch(List.of(message)).get(0);
+        if (!result.isSent()) {
+            throw new RuntimeException(result.getError());
+        }
     }
 }
@@ -0,0 +1,356 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.InvoiceFilter;
+import com.invoiceapp.dto.InvoiceSummary;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.repository.InvoiceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Writes the invoices matching a filter as a ZIP of PDFs, or as CSV/JSONL data. Invoices for the ZIP are read
+// page by page and rendered on a shared bounded pool; each export keeps at most a fixed window of renders in
+// flight and writes them in order. Data exports read one cursor of scalar rows inside a read-only transaction
+// and write each row as it arrives. Either way memory stays flat however many invoices match.
+@Service
+public class InvoiceExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceExportService.class);
+
+    private static final String CSV_HEADER = "invoice_id,invoice_number,invoice_date,due_date,payment_status," +
+            "client_id,client_name,client_email,subtotal,tax_rate,tax_amount,total," +
+            "item_id,description,quantity,unit_price,item_total,item_discount_percent,item_tax_rate";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern UNSAFE_FILE_NAME_CHARS = Pattern.compile("[^A-Za-z0-9._-]");
+
+    public enum DataFormat { CSV, JSONL }
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${invoice.export.page-size:100}")
+    private int pageSize;
+
+    @Value("${invoice.export.render-threads:0}")
+    private int renderThreads;
+
+    @Value("${invoice.export.window:0}")
+    private int window;
+
+    private ExecutorService renderExecutor;
+
+    private TransactionTemplate readTransaction;
+
+    @PostConstruct
+    void init() {
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+
+        if (renderThreads <= 0) {
+            renderThreads = Runtime.getRuntime().availableProcessors();
+        }
+        if (window <= 0) {
+            window = renderThreads * 2;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        renderExecutor = Executors.newFixedThreadPool(renderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
+    public int writePdfZip(InvoiceFilter filter, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PDF streams are already deflated, so spend as little as possible compressing them again
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        Deque<Future<RenderedPdf>> inFlight = new ArrayDeque<>(window);
+        Set<String> entryNames = new HashSet<>();
+        int written = 0;
+        try {
+            LocalDate afterDate = null;
+            Long afterId = null;
+            while (true) {
+                List<InvoiceSummary> page = invoiceRepository.findSummaries(filter, afterDate, afterId, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Invoice invoice : loadInOrder(page)) {
+                    // Wait for the oldest render before starting another once the window is full
+                    if (inFlight.size() >= window) {
+                        writeEntry(zip, inFlight.removeFirst(), entryNames);
+                        written++;
+                    }
+                    inFlight.addLast(renderExecutor.submit(() -> new RenderedPdf(invoice.getId(),
+                            invoice.getInvoiceNumber(), pdfService.readInvoicePdf(invoice))));
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                InvoiceSummary last = page.get(page.size() - 1);
+                afterDate = last.getInvoiceDate();
+                afterId = last.getId();
+            }
+            while (!inFlight.isEmpty()) {
+                writeEntry(zip, inFlight.removeFirst(), entryNames);
+                written++;
+            }
+            zip.finish();
+            zip.flush();
+            return written;
+        } finally {
+            // Stop pending renders when the client disconnects or a render fails
+            for (Future<RenderedPdf> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // Writes every line item matching the filter and returns the number of invoices written
+    public int writeData(InvoiceFilter filter, DataFormat format, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        Integer invoices;
+        try {
+            invoices = readTransaction.execute(status -> {
+                try (Stream<Object[]> rows = invoiceRepository.streamExportRows(filter, fetchSize)) {
+                    return format == DataFormat.CSV ? writeCsv(rows, writer) : writeJsonl(rows, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} invoices as {} in {} ms", invoices, format, (System.nanoTime() - started) / 1_000_000);
+        return invoices;
+    }
+
+    private int writeCsv(Stream<Object[]> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        int invoices = 0;
+        Object previousId = null;
+        for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+            if (!row[0].equals(previousId)) {
+                invoices++;
+                previousId = row[0];
+            }
+            for (int column = 0; column < row.length; column++) {
+                if (column > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, row[column]);
+            }
+            writer.write("\r\n");
+        }
+        return invoices;
+    }
+
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!(value instanceof String)) {
+            writer.write(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+            return;
+        }
+        String text = (String) value;
+        // Spreadsheets run cells starting with these as formulas; a leading quote keeps them as text
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // One JSON object per invoice with its items nested; rows arrive grouped by invoice
+    private int writeJsonl(Stream<Object[]> rows, Writer writer) throws IOException {
+        int invoices = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(writer)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Flushing the generator at each line should only reach the buffered writer, not the socket
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+            json.setRootValueSeparator(null);
+            Object previousId = null;
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                if (!row[0].equals(previousId)) {
+                    if (previousId != null) {
+                        endInvoice(json, writer);
+                    }
+                    startInvoice(json, row);
+                    invoices++;
+                    previousId = row[0];
+                }
+                if (row[12] != null) {
+                    json.writeStartObject();
+                    json.writeObjectField("id", row[12]);
+                    json.writeObjectField("description", row[13]);
+                    json.writeObjectField("quantity", row[14]);
+                    json.writeObjectField("unitPrice", row[15]);
+                    json.writeObjectField("total", row[16]);
+                    json.writeObjectField("discountPercent", row[17]);
+                    json.writeObjectField("taxRate", row[18]);
+                    json.writeEndObject();
+                }
+            }
+            if (previousId != null) {
+                endInvoice(json, writer);
+            }
+        }
+        return invoices;
+    }
+
+    private static void startInvoice(JsonGenerator json, Object[] row) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("id", row[0]);
+        json.writeObjectField("invoiceNumber", row[1]);
+        json.writeObjectField("invoiceDate", row[2]);
+        json.writeObjectField("dueDate", row[3]);
+        json.writeObjectField("paymentStatus", row[4]);
+        json.writeObjectFieldStart("client");
+        json.writeObjectField("id", row[5]);
+        json.writeObjectField("name", row[6]);
+        json.writeObjectField("email", row[7]);
+        json.writeEndObject();
+        json.writeObjectField("subtotal", row[8]);
+        json.writeObjectField("taxRate", row[9]);
+        json.writeObjectField("taxAmount", row[10]);
+        json.writeObjectField("total", row[11]);
+        json.writeArrayFieldStart("items");
+    }
+
+    private static void endInvoice(JsonGenerator json, Writer writer) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.flush();
+        writer.write('\n');
+    }
+
+    private List<Invoice> loadInOrder(List<InvoiceSummary> page) {
+        List<Long> ids = new ArrayList<>(page.size());
+        for (InvoiceSummary summary : page) {
+            ids.add(summary.getId());
+        }
+        Map<Long, Invoice> byId = new HashMap<>();
+        for (Invoice invoice : invoiceRepository.findDetailByIdIn(ids)) {
+            byId.put(invoice.getId(), invoice);
+        }
+        List<Invoice> invoices = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Invoice invoice = byId.get(id);
+            // Deleted since the page was read
+            if (invoice != null) {
+                invoices.add(invoice);
+            }
+        }
+        return invoices;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, Future<RenderedPdf> future, Set<String> entryNames) throws IOException {
+        RenderedPdf rendered;
+        try {
+            rendered = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PDF export interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error generating PDF: " + e.getCause().getMessage(), e.getCause());
+        }
+        zip.putNextEntry(new ZipEntry(entryName(rendered.invoiceId, rendered.invoiceNumber, entryNames)));
+        zip.write(rendered.pdf);
+        zip.closeEntry();
+    }
+
+    // Invoice numbers are user input; keep path separators and control characters out of the archive. A number that
+    // had to be changed also gets the invoice id. That alone does not make names unique ("A/B" with id 7 and a
+    // number "A_B_7" both give Invoice_A_B_7.pdf), and a ZIP cannot hold the same entry twice, so names already
+    // used in this archive are tracked, ignoring case for case-insensitive file systems, and a later clash gets
+    // the id and if need be a counter.
+    static String entryName(Long invoiceId, String invoiceNumber, Set<String> taken) {
+        String name = UNSAFE_FILE_NAME_CHARS.matcher(invoiceNumber).replaceAll("_");
+        if (!name.equals(invoiceNumber)) {
+            name = name + "_" + invoiceId;
+        }
+        String entry = "Invoice_" + name + ".pdf";
+        for (int attempt = 1; !taken.add(entry.toLowerCase(Locale.ROOT)); attempt++) {
+            entry = "Invoice_" + name + "_" + invoiceId + (attempt > 1 ? "_" + attempt : "") + ".pdf";
+        }
+        return entry;
+    }
+
+    private static final class RenderedPdf {
+        final Long invoiceId;
+        final String invoiceNumber;
+        final byte[] pdf;
+
+        RenderedPdf(Long invoiceId, String invoiceNumber, byte[] pdf) {
+            this.invoiceId = invoiceId;
+            this.invoiceNumber = invoiceNumber;
+            this.pdf = pdf;
+        }
+    }
+}
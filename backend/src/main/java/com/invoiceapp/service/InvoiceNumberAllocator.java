@@ -0,0 +1,242 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.InvoiceSequence;
+import com.invoiceapp.repository.InvoiceRepository;
+import com.invoiceapp.repository.InvoiceSequenceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hands out invoice numbers lock-free from blocks reserved on the invoice_sequences counter row.
+// The next block is reserved in the background once the current one is partly used up. Creators never reserve on
+// their own thread: they are inside createInvoice's transaction and already hold a pooled connection, so a refill,
+// or a batch large enough to get its own range, waits for the single prefetch thread instead of borrowing a second
+// connection. The whole wait, including for another creator's refill, is bounded by refill-wait-ms.
+@Component
+public class InvoiceNumberAllocator {
+
+    static final String SEQUENCE_NAME = "invoice";
+
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    @Autowired
+    private InvoiceSequenceRepository sequenceRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.number.block-size:50}")
+    private int blockSize;
+
+    @Value("${invoice.number.prefetch-ratio:0.5}")
+    private double prefetchRatio;
+
+    @Value("${invoice.number.refill-wait-ms:10000}")
+    private long refillWaitMs;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+    private final AtomicReference<CompletableFuture<Block>> prefetched = new AtomicReference<>();
+    // A lock rather than synchronized: the refill waits on the database, which would pin a virtual thread's carrier
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private TransactionTemplate reserveTransaction;
+    private ExecutorService prefetchExecutor;
+
+    @PostConstruct
+    void init() {
+        if (blockSize <= 0) {
+            throw new IllegalStateException("invoice.number.block-size must be positive, was " + blockSize);
+        }
+        reserveTransaction = new TransactionTemplate(transactionManager);
+        reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invoice-number-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        // Reserve the first block before traffic arrives so the first creates don't pay for it
+        prefetch();
+    }
+
+    public String nextInvoiceNumber() {
+        return format(nextSequence());
+    }
+
+    public List<String> nextInvoiceNumbers(int count) {
+        List<String> numbers = new ArrayList<>(count);
+        if (count >= blockSize) {
+            // Large requests get their own contiguous range in a single round trip
+            Block block = await(CompletableFuture.supplyAsync(() -> reserve(count), prefetchExecutor), deadline());
+            for (long value = block.cursor.get(); value < block.end; value++) {
+                numbers.add(format(value));
+            }
+            return numbers;
+        }
+        for (int i = 0; i < count; i++) {
+            numbers.add(nextInvoiceNumber());
+        }
+        return numbers;
+    }
+
+    public long nextSequence() {
+        while (true) {
+            Block block = current.get();
+            long value = block.cursor.getAndIncrement();
+            if (value < block.end) {
+                if (value == block.prefetchAt) {
+                    prefetch();
+                }
+                return value;
+            }
+            refill(block);
+        }
+    }
+
+    public static String format(long sequence) {
+        return String.format("INV-%04d", sequence);
+    }
+
+    private void refill(Block exhausted) {
+        long deadline = deadline();
+        try {
+            if (!refillLock.tryLock(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Timed out waiting for invoice numbers, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for invoice numbers", e);
+        }
+        try {
+            if (current.get() != exhausted) {
+                return;
+            }
+            // Normally the prefetch started halfway through this block; start one now if it never ran or failed
+            CompletableFuture<Block> failed = prefetched.get();
+            if (failed != null && failed.isCompletedExceptionally()) {
+                prefetched.compareAndSet(failed, null);
+            }
+            prefetch();
+            CompletableFuture<Block> pending = prefetched.get();
+            Block next;
+            try {
+                // A reservation still running is left in place, so the next caller keeps waiting on it
+                next = await(pending, deadline);
+            } finally {
+                if (pending.isCompletedExceptionally()) {
+                    prefetched.compareAndSet(pending, null);
+                }
+            }
+            prefetched.compareAndSet(pending, null);
+            current.set(next);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private static Block await(CompletableFuture<Block> reservation, long deadline) {
+        try {
+            return reservation.get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for invoice numbers, try again later", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not reserve invoice numbers: " + e.getCause().getMessage(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for invoice numbers", e);
+        }
+    }
+
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(refillWaitMs);
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private void prefetch() {
+        CompletableFuture<Block> future = new CompletableFuture<>();
+        if (prefetched.compareAndSet(null, future)) {
+            prefetchExecutor.execute(() -> {
+                try {
+                    future.complete(reserve(blockSize));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    Block reserve(int count) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return reserveTransaction.execute(status -> {
+                    InvoiceSequence sequence = sequenceRepository.findByNameForUpdate(SEQUENCE_NAME)
+                            .orElseGet(this::createSequence);
+                    long start = sequence.getNextValue();
+                    sequence.setNextValue(start + count);
+                    return new Block(start, start + count, prefetchRatio);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the counter row concurrently; retry against its row
+                if (attempt >= MAX_RESERVE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private InvoiceSequence createSequence() {
+        // One-time seed from existing invoices so numbering continues where MAX() left off
+        Integer maxSequence = invoiceRepository.findMaxInvoiceSequence();
+        long firstValue = (maxSequence != null ? maxSequence : 0) + 1L;
+        return sequenceRepository.saveAndFlush(new InvoiceSequence(SEQUENCE_NAME, firstValue));
+    }
+
+    static final class Block {
+        static final Block EMPTY = new Block(0, 0, 0);
+
+        final AtomicLong cursor;
+        final long end;
+        final long prefetchAt;
+
+        Block(long start, long end, double prefetchRatio) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = start + (long) ((end - start) * prefetchRatio);
+        }
+    }
+}
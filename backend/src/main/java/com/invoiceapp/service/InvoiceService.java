@@ -1,18 +1,47 @@
 package com.invoiceapp.service;
 
+import com.invoiceapp.dto.CursorPage;
+import com.invoiceapp.dto.InvoiceBatchResult;
+import com.invoiceapp.dto.InvoiceFilter;
+import com.invoiceapp.dto.InvoiceSummary;
 import com.invoiceapp.entity.Invoice;
 import com.invoiceapp.entity.InvoiceItem;
 import com.invoiceapp.entity.Client;
 import com.invoiceapp.repository.InvoiceRepository;
 import com.invoiceapp.repository.ClientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+// Invoice reads and writes. Methods are read-write transactions unless marked read-only; read-only ones skip
+// Hibernate's dirty checking and flush and, with a replica configured, run on the replica. The exists checks
+// guard writes, so they stay on the primary.
 @Service
 @Transactional
 public class InvoiceService {
@@ -23,116 +52,417 @@ public class InvoiceService {
     @Autowired
     private ClientRepository clientRepository;
 
+    @Autowired
+    private InvoiceNumberAllocator invoiceNumberAllocator;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private PdfCache pdfCache;
+
+    @Autowired
+    private ClientSuggestIndex clientSuggestIndex;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ClientSummaryService clientSummaryService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${invoice.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    private TransactionTemplate chunkTransaction;
+
+    private Timer createTimer;
+    private Timer createFailedTimer;
+    private Timer updateTimer;
+    private Timer updateFailedTimer;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void init() {
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        // Measured inside the service transaction, so commit time shows up in http.server.requests only
+        createTimer = Timer.builder("invoice.create").tag("outcome", "success").register(meterRegistry);
+        createFailedTimer = Timer.builder("invoice.create").tag("outcome", "error").register(meterRegistry);
+        updateTimer = Timer.builder("invoice.update").tag("outcome", "success").register(meterRegistry);
+        updateFailedTimer = Timer.builder("invoice.update").tag("outcome", "error").register(meterRegistry);
+        batchTimer = Timer.builder("invoice.create.batch").register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
     public List<Invoice> getAllInvoices() {
         return invoiceRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<InvoiceSummary> getInvoicePage(InvoiceFilter filter, String cursor, int limit) {
+        LocalDate afterDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            afterDate = LocalDate.parse(position[0]);
+            afterId = Long.valueOf(position[1]);
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        List<InvoiceSummary> rows = invoiceRepository.findSummaries(filter, afterDate, afterId, limit + 1);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<InvoiceSummary> page = rows.subList(0, limit);
+        InvoiceSummary last = page.get(limit - 1);
+        return new CursorPage<>(new ArrayList<>(page), encodeCursor(last.getInvoiceDate(), last.getId()));
+    }
+
+    private static String encodeCursor(LocalDate invoiceDate, Long id) {
+        String position = invoiceDate + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDate.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Invoice> getInvoiceById(Long id) {
-        return invoiceRepository.findById(id);
+        return invoiceRepository.findDetailById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Invoice> getInvoicesByIds(Collection<Long> ids) {
+        return invoiceRepository.findDetailByIdIn(ids);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Invoice> getInvoiceByNumber(String invoiceNumber) {
-        return invoiceRepository.findByInvoiceNumber(invoiceNumber);
+        return invoiceRepository.loadByInvoiceNumber(invoiceNumber);
     }
 
+    @Transactional(readOnly = true)
     public List<Invoice> getInvoicesByClient(Long clientId) {
         return invoiceRepository.findByClientId(clientId);
     }
 
+    @Transactional(readOnly = true)
     public List<Invoice> getInvoicesByStatus(Invoice.PaymentStatus status) {
         return invoiceRepository.findByPaymentStatus(status);
     }
 
+    @Transactional(readOnly = true)
     public List<Invoice> getOverdueInvoices() {
-        return invoiceRepository.findByDueDateBefore(LocalDate.now());
+        return invoiceRepository.findOverdue(LocalDate.now());
     }
 
+    @Transactional(readOnly = true)
     public List<Invoice> getInvoicesByDateRange(LocalDate startDate, LocalDate endDate) {
         return invoiceRepository.findByDateRange(startDate, endDate);
     }
 
     public Invoice createInvoice(Invoice invoice) {
-        // Set client
-        if (invoice.getClient() != null && invoice.getClient().getId() != null) {
-            Client client = clientRepository.findById(invoice.getClient().getId())
-                    .orElseThrow(() -> new RuntimeException("Client not found"));
-            invoice.setClient(client);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+        try {
+            // Set client
+            if (invoice.getClient() != null && invoice.getClient().getId() != null) {
+                Client client = clientRepository.findById(invoice.getClient().getId())
+                        .orElseThrow(() -> new RuntimeException("Client not found"));
+                invoice.setClient(client);
+            }
+
+            // Generate invoice number if not provided
+            if (invoice.getInvoiceNumber() == null || invoice.getInvoiceNumber().isEmpty()) {
+                invoice.setInvoiceNumber(generateInvoiceNumber());
+            }
+
+            // Set invoice reference for items
+            prepareItems(invoice);
+
+            // Calculate totals
+            invoice.calculateTotals();
+
+            Invoice savedInvoice = invoiceRepository.save(invoice);
+            dashboardService.recordCreated(List.of(savedInvoice));
+            clientSummaryService.refresh(List.of(savedInvoice.getClient().getId()));
+            reportService.evictPeriods(Arrays.asList(savedInvoice.getInvoiceDate()));
+            recordInvoiced(savedInvoice);
+            success = true;
+            return savedInvoice;
+        } finally {
+            sample.stop(success ? createTimer : createFailedTimer);
+        }
+    }
+
+    // Creates many invoices in chunked transactions; rows that fail are reported instead of aborting the batch
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public InvoiceBatchResult createInvoices(List<Invoice> invoices) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        InvoiceBatchResult result = new InvoiceBatchResult(invoices.size());
+
+        // Load every referenced client in one query
+        Set<Long> clientIds = new HashSet<>();
+        for (Invoice invoice : invoices) {
+            if (invoice != null && invoice.getClient() != null && invoice.getClient().getId() != null) {
+                clientIds.add(invoice.getClient().getId());
+            }
+        }
+        Map<Long, Client> clients = new HashMap<>();
+        for (Client client : clientRepository.findAllById(clientIds)) {
+            clients.put(client.getId(), client);
         }
 
-        // Generate invoice number if not provided
-        if (invoice.getInvoiceNumber() == null || invoice.getInvoiceNumber().isEmpty()) {
-            invoice.setInvoiceNumber(generateInvoiceNumber());
+        // Validate rows up front so only writable rows reach the database
+        List<Integer> rows = new ArrayList<>();
+        int numbersNeeded = 0;
+        for (int row = 0; row < invoices.size(); row++) {
+            Invoice invoice = invoices.get(row);
+            String error = validateForBatch(invoice, clients);
+            if (error != null) {
+                result.addError(row, error);
+                continue;
+            }
+            invoice.setClient(clients.get(invoice.getClient().getId()));
+            if (invoice.getInvoiceNumber() == null || invoice.getInvoiceNumber().isEmpty()) {
+                numbersNeeded++;
+            }
+            rows.add(row);
         }
 
-        // Set invoice reference for items
+        // Allocate invoice numbers in bulk
+        List<String> numbers = invoiceNumberAllocator.nextInvoiceNumbers(numbersNeeded);
+        int nextNumber = 0;
+        for (int row : rows) {
+            Invoice invoice = invoices.get(row);
+            if (invoice.getInvoiceNumber() == null || invoice.getInvoiceNumber().isEmpty()) {
+                invoice.setInvoiceNumber(numbers.get(nextNumber++));
+            }
+            prepareItems(invoice);
+            invoice.calculateTotals();
+        }
+
+        // Write in chunks, each committed on its own so a bad row only costs its chunk a retry
+        for (int start = 0; start < rows.size(); start += batchChunkSize) {
+            List<Integer> chunk = rows.subList(start, Math.min(start + batchChunkSize, rows.size()));
+            List<Invoice> chunkInvoices = new ArrayList<>(chunk.size());
+            for (int row : chunk) {
+                chunkInvoices.add(invoices.get(row));
+            }
+            try {
+                chunkTransaction.executeWithoutResult(status -> {
+                    invoiceRepository.saveAll(chunkInvoices);
+                    dashboardService.recordCreated(chunkInvoices);
+                    clientSummaryService.refresh(clientIds(chunkInvoices));
+                    reportService.evictPeriods(invoiceDates(chunkInvoices));
+                });
+                for (int row : chunk) {
+                    Invoice invoice = invoices.get(row);
+                    result.addCreated(row, invoice.getId(), invoice.getInvoiceNumber());
+                    recordInvoiced(invoice);
+                }
+            } catch (RuntimeException e) {
+                saveRowByRow(invoices, chunk, result);
+            }
+        }
+
+        sample.stop(batchTimer);
+        return result;
+    }
+
+    private void saveRowByRow(List<Invoice> invoices, List<Integer> rows, InvoiceBatchResult result) {
+        for (int row : rows) {
+            Invoice invoice = invoices.get(row);
+            resetIds(invoice);
+            try {
+                chunkTransaction.executeWithoutResult(status -> {
+                    invoiceRepository.save(invoice);
+                    dashboardService.recordCreated(List.of(invoice));
+                    clientSummaryService.refresh(List.of(invoice.getClient().getId()));
+                    reportService.evictPeriods(Arrays.asList(invoice.getInvoiceDate()));
+                });
+                result.addCreated(row, invoice.getId(), invoice.getInvoiceNumber());
+                recordInvoiced(invoice);
+            } catch (RuntimeException e) {
+                resetIds(invoice);
+                result.addError(row, "Error creating invoice: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+    }
+
+    private String validateForBatch(Invoice invoice, Map<Long, Client> clients) {
+        if (invoice == null) {
+            return "Invoice is required";
+        }
+        if (invoice.getClient() == null || invoice.getClient().getId() == null) {
+            return "Client is required";
+        }
+        if (!clients.containsKey(invoice.getClient().getId())) {
+            return "Client not found";
+        }
+        Set<ConstraintViolation<Invoice>> violations = validator.validate(invoice);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
         if (invoice.getItems() != null) {
             for (InvoiceItem item : invoice.getItems()) {
-                item.setInvoice(invoice);
-                item.calculateTotal();
+                Set<ConstraintViolation<InvoiceItem>> itemViolations = validator.validate(item);
+                if (!itemViolations.isEmpty()) {
+                    return itemViolations.iterator().next().getMessage();
+                }
             }
         }
+        return null;
+    }
 
-        // Calculate totals
-        invoice.calculateTotals();
+    // Keeps the client typeahead ordered by who was invoiced most recently
+    private void recordInvoiced(Invoice invoice) {
+        if (invoice.getClient() != null) {
+            clientSuggestIndex.recordInvoiced(invoice.getClient().getId(), invoice.getCreatedAt());
+        }
+    }
 
-        return invoiceRepository.save(invoice);
+    private static Set<Long> clientIds(List<Invoice> invoices) {
+        Set<Long> ids = new HashSet<>();
+        for (Invoice invoice : invoices) {
+            ids.add(invoice.getClient().getId());
+        }
+        return ids;
     }
 
-    public Invoice updateInvoice(Long id, Invoice invoiceDetails) {
-        Invoice invoice = invoiceRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Invoice not found with id: " + id));
+    private static List<LocalDate> invoiceDates(List<Invoice> invoices) {
+        List<LocalDate> dates = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            dates.add(invoice.getInvoiceDate());
+        }
+        return dates;
+    }
 
-        // Update basic fields
-        invoice.setInvoiceDate(invoiceDetails.getInvoiceDate());
-        invoice.setDueDate(invoiceDetails.getDueDate());
-        invoice.setTaxRate(invoiceDetails.getTaxRate());
-        invoice.setNotes(invoiceDetails.getNotes());
-        invoice.setTerms(invoiceDetails.getTerms());
-        invoice.setPaymentStatus(invoiceDetails.getPaymentStatus());
-
-        // Update client if provided
-        if (invoiceDetails.getClient() != null && invoiceDetails.getClient().getId() != null) {
-            Client client = clientRepository.findById(invoiceDetails.getClient().getId())
-                    .orElseThrow(() -> new RuntimeException("Client not found"));
-            invoice.setClient(client);
-        }
-
-        // Update items
-        if (invoiceDetails.getItems() != null) {
-            // Clear existing items
-            invoice.getItems().clear();
-            
-            // Add new items
-            for (InvoiceItem item : invoiceDetails.getItems()) {
+    private void prepareItems(Invoice invoice) {
+        if (invoice.getItems() != null) {
+            for (InvoiceItem item : invoice.getItems()) {
                 item.setInvoice(invoice);
                 item.calculateTotal();
-                invoice.getItems().add(item);
             }
         }
+    }
+
+    private void resetIds(Invoice invoice) {
+        // Ids assigned in a rolled back transaction were never written, so the retry must persist afresh
+        invoice.setId(null);
+        if (invoice.getItems() != null) {
+            for (InvoiceItem item : invoice.getItems()) {
+                item.setId(null);
+            }
+        }
+    }
 
-        // Recalculate totals
-        invoice.calculateTotals();
+    public Invoice updateInvoice(Long id, Invoice invoiceDetails) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+        try {
+            Invoice invoice = invoiceRepository.findDetailById(id)
+                    .orElseThrow(() -> new RuntimeException("Invoice not found with id: " + id));
+            Invoice.PaymentStatus oldStatus = invoice.getPaymentStatus();
+            BigDecimal oldTotal = invoice.getTotal();
+            Long oldClientId = invoice.getClient().getId();
+            LocalDate oldInvoiceDate = invoice.getInvoiceDate();
+
+            // Update basic fields
+            invoice.setInvoiceDate(invoiceDetails.getInvoiceDate());
+            invoice.setDueDate(invoiceDetails.getDueDate());
+            invoice.setTaxRate(invoiceDetails.getTaxRate());
+            invoice.setNotes(invoiceDetails.getNotes());
+            invoice.setTerms(invoiceDetails.getTerms());
+            invoice.setPaymentStatus(invoiceDetails.getPaymentStatus());
+
+            // Update client if provided
+            if (invoiceDetails.getClient() != null && invoiceDetails.getClient().getId() != null) {
+                Client client = clientRepository.findById(invoiceDetails.getClient().getId())
+                        .orElseThrow(() -> new RuntimeException("Client not found"));
+                invoice.setClient(client);
+            }
+
+            // Update items
+            if (invoiceDetails.getItems() != null) {
+                // Clear existing items
+                invoice.getItems().clear();
+            
+                // Add new items
+                for (InvoiceItem item : invoiceDetails.getItems()) {
+                    item.setInvoice(invoice);
+                    item.calculateTotal();
+                    invoice.getItems().add(item);
+                }
+            }
+
+            // Recalculate totals
+            invoice.calculateTotals();
+
+            // Item-only edits leave the invoice row clean, so bump the version that cached PDFs are keyed on
+            invoice.setUpdatedAt(LocalDateTime.now());
 
-        return invoiceRepository.save(invoice);
+            Invoice savedInvoice = invoiceRepository.save(invoice);
+            dashboardService.recordChanged(oldStatus, oldTotal, oldClientId, savedInvoice);
+            clientSummaryService.refresh(Arrays.asList(oldClientId, savedInvoice.getClient().getId()));
+            reportService.evictPeriods(Arrays.asList(oldInvoiceDate, savedInvoice.getInvoiceDate()));
+            pdfCache.evict(id);
+            success = true;
+            return savedInvoice;
+        } finally {
+            sample.stop(success ? updateTimer : updateFailedTimer);
+        }
     }
 
     public void deleteInvoice(Long id) {
-        Invoice invoice = invoiceRepository.findById(id)
+        Invoice invoice = invoiceRepository.findDetailById(id)
                 .orElseThrow(() -> new RuntimeException("Invoice not found with id: " + id));
+        dashboardService.recordDeleted(invoice);
+        reportService.evictPeriods(Arrays.asList(invoice.getInvoiceDate()));
         invoiceRepository.delete(invoice);
+        clientSummaryService.refresh(List.of(invoice.getClient().getId()));
+        pdfCache.evict(id);
     }
 
     public Invoice updatePaymentStatus(Long id, Invoice.PaymentStatus status) {
-        Invoice invoice = invoiceRepository.findById(id)
+        Invoice invoice = invoiceRepository.findDetailById(id)
                 .orElseThrow(() -> new RuntimeException("Invoice not found with id: " + id));
+        Invoice.PaymentStatus oldStatus = invoice.getPaymentStatus();
         invoice.setPaymentStatus(status);
-        return invoiceRepository.save(invoice);
+        Invoice savedInvoice = invoiceRepository.save(invoice);
+        dashboardService.recordChanged(oldStatus, savedInvoice.getTotal(), savedInvoice.getClient().getId(), savedInvoice);
+        clientSummaryService.refresh(List.of(savedInvoice.getClient().getId()));
+        reportService.evictPeriods(Arrays.asList(savedInvoice.getInvoiceDate()));
+        pdfCache.evict(id);
+        return savedInvoice;
     }
 
     private String generateInvoiceNumber() {
-        Integer maxSequence = invoiceRepository.findMaxInvoiceSequence();
-        int nextSequence = (maxSequence != null ? maxSequence : 0) + 1;
-        return String.format("INV-%04d", nextSequence);
+        return invoiceNumberAllocator.nextInvoiceNumber();
+    }
+
+    public boolean existsById(Long id) {
+        return invoiceRepository.existsById(id);
     }
 
     public boolean existsByInvoiceNumber(String invoiceNumber) {
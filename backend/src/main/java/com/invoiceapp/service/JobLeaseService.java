@@ -0,0 +1,78 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.JobLease;
+import com.invoiceapp.repository.JobLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Time-bounded leases on rows of job_leases, so a scheduled job runs on one node at a time. A node that
+// dies while holding a lease only blocks the job until the lease expires.
+@Component
+public class JobLeaseService {
+
+    private static final LocalDateTime EXPIRED = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate leaseTransaction;
+
+    private String owner;
+
+    @PostConstruct
+    void init() {
+        leaseTransaction = new TransactionTemplate(transactionManager);
+        leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        owner = hostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // Acquires or extends the lease; false when another node holds it
+    public boolean tryAcquire(String name, Duration duration) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return leaseTransaction.execute(status -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    if (leaseRepository.tryAcquire(name, owner, now, now.plus(duration)) == 1) {
+                        return true;
+                    }
+                    if (leaseRepository.existsById(name)) {
+                        return false;
+                    }
+                    leaseRepository.saveAndFlush(new JobLease(name, owner, now.plus(duration)));
+                    return true;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another node created the lease row at the same moment; retry against its row
+                if (attempt >= 2) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    public void release(String name) {
+        leaseTransaction.executeWithoutResult(status -> leaseRepository.release(name, owner, EXPIRED));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.repository.InvoiceRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Marks PENDING invoices past their due date as OVERDUE and queues a payment reminder for each one.
+// Invoices are walked in (dueDate, id) keyset chunks; each chunk locks its rows, flips them with one bulk
+// UPDATE and inserts the reminders in the same transaction. A lease row keeps the sweep on one node.
+@Service
+public class OverdueSweepService {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueSweepService.class);
+
+    static final String LEASE_NAME = "overdue-sweep";
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private ClientSummaryService clientSummaryService;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private PdfCache pdfCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.overdue.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${invoice.overdue.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${invoice.overdue.reminders-enabled:true}")
+    private boolean remindersEnabled;
+
+    @Value("${invoice.overdue.reminder-batch-size:100}")
+    private int reminderBatchSize;
+
+    @Value("${invoice.overdue.reminder-batch-interval-ms:60000}")
+    private long reminderBatchIntervalMs;
+
+    private TransactionTemplate chunkTransaction;
+
+    @PostConstruct
+    void init() {
+        chunkTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${invoice.overdue.cron:0 0 * * * *}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    // Returns the number of invoices marked overdue, or -1 when another node holds the lease
+    public int sweep() {
+        Duration lease = Duration.ofMillis(leaseMs);
+        if (!jobLeaseService.tryAcquire(LEASE_NAME, lease)) {
+            return -1;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDate afterDueDate = null;
+            Long afterId = null;
+            int marked = 0;
+            long started = System.nanoTime();
+
+            while (true) {
+                LocalDate cursorDate = afterDueDate;
+                Long cursorId = afterId;
+                int reminderOffset = marked;
+                List<Object[]> rows = chunkTransaction.execute(status ->
+                        markChunk(today, now, cursorDate, cursorId, reminderOffset));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                marked += rows.size();
+                Object[] last = rows.get(rows.size() - 1);
+                afterDueDate = (LocalDate) last[1];
+                afterId = (Long) last[0];
+                if (rows.size() < chunkSize) {
+                    break;
+                }
+                // Keep the lease alive for long sweeps; stop if another node has taken it over
+                if (!jobLeaseService.tryAcquire(LEASE_NAME, lease)) {
+                    log.warn("Lost the overdue sweep lease after marking {} invoices", marked);
+                    break;
+                }
+            }
+
+            if (marked > 0) {
+                log.info("Marked {} invoices overdue in {} ms", marked, (System.nanoTime() - started) / 1_000_000);
+            }
+            return marked;
+        } finally {
+            jobLeaseService.release(LEASE_NAME);
+        }
+    }
+
+    private List<Object[]> markChunk(LocalDate today, LocalDateTime now, LocalDate afterDueDate, Long afterId,
+                                     int reminderOffset) {
+        // The row locks keep concurrent edits out until the chunk commits, so every id read is flipped
+        List<Object[]> rows = invoiceRepository.lockByStatusDueBefore(
+                Invoice.PaymentStatus.PENDING, today, afterDueDate, afterId, chunkSize);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        Set<Long> clientIds = new HashSet<>();
+        for (Object[] row : rows) {
+            ids.add((Long) row[0]);
+            clientIds.add((Long) row[2]);
+        }
+
+        invoiceRepository.updatePaymentStatus(ids, Invoice.PaymentStatus.OVERDUE, now);
+        dashboardService.recordStatusChange(Invoice.PaymentStatus.PENDING, Invoice.PaymentStatus.OVERDUE, ids.size());
+        // Their invoices have just fallen due, so the overdue totals the client list sorts on move with them
+        clientSummaryService.refresh(clientIds);
+        if (remindersEnabled) {
+            queueReminders(ids, now, reminderOffset);
+        }
+        pdfCache.evictAll(ids);
+        return rows;
+    }
+
+    // Spreads reminders over time: each run of reminderBatchSize becomes due one interval after the previous
+    private void queueReminders(List<Long> ids, LocalDateTime now, int offset) {
+        int start = 0;
+        while (start < ids.size()) {
+            int batch = (offset + start) / reminderBatchSize;
+            int end = Math.min(ids.size(), (batch + 1) * reminderBatchSize - offset);
+            LocalDateTime notBefore = now.plus(Duration.ofMillis(batch * reminderBatchIntervalMs));
+            emailOutboxService.enqueueReminders(ids.subList(start, end), notBefore);
+            start = end;
+        }
+    }
+}
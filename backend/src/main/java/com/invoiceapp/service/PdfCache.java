@@ -0,0 +1,258 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.InvoiceVersion;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rendered invoice PDFs keyed by invoice id and version tag. The tag changes whenever the invoice or its
+// client is saved, so a stale entry can never be served; eviction only frees the space early.
+// Entries live in a size-bounded LRU in memory, optionally backed by files in a local directory.
+@Component
+public class PdfCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfCache.class);
+
+    @Value("${invoice.pdf-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${invoice.pdf-cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    @Value("${invoice.pdf-cache.directory:}")
+    private String directory;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private Path diskDirectory;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (directory != null && !directory.isBlank()) {
+            diskDirectory = Files.createDirectories(Paths.get(directory));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("invoice.pdf.cache.requests", memoryHits, AtomicLong::get)
+                .tag("result", "memory-hit").register(registry);
+        FunctionCounter.builder("invoice.pdf.cache.requests", diskHits, AtomicLong::get)
+                .tag("result", "disk-hit").register(registry);
+        FunctionCounter.builder("invoice.pdf.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(registry);
+        Gauge.builder("invoice.pdf.cache.size", this, PdfCache::memoryBytes).baseUnit("bytes").register(registry);
+        Gauge.builder("invoice.pdf.cache.entries", this, PdfCache::memoryEntries).register(registry);
+    }
+
+    private synchronized double memoryBytes() {
+        return totalBytes;
+    }
+
+    private synchronized double memoryEntries() {
+        return entries.size();
+    }
+
+    public static String tag(InvoiceVersion version) {
+        return version.getId() + "-" + Long.toHexString(epochMillis(version.getUpdatedAt()))
+                + "-" + Long.toHexString(epochMillis(version.getClientUpdatedAt()));
+    }
+
+    public byte[] get(InvoiceVersion version) {
+        String tag = tag(version);
+        synchronized (this) {
+            Entry entry = entries.get(version.getId());
+            if (entry != null) {
+                if (entry.tag.equals(tag)) {
+                    memoryHits.incrementAndGet();
+                    return entry.pdf;
+                }
+                removeEntry(version.getId());
+            }
+        }
+
+        byte[] pdf = readFromDisk(tag);
+        if (pdf != null) {
+            diskHits.incrementAndGet();
+            putInMemory(version.getId(), tag, pdf);
+        } else {
+            misses.incrementAndGet();
+        }
+        return pdf;
+    }
+
+    // Like get, but a copy found on disk is not loaded into memory; for bulk reads that should not displace
+    // the entries interactive requests use
+    public byte[] peek(InvoiceVersion version) {
+        String tag = tag(version);
+        synchronized (this) {
+            Entry entry = entries.get(version.getId());
+            if (entry != null && entry.tag.equals(tag)) {
+                memoryHits.incrementAndGet();
+                return entry.pdf;
+            }
+        }
+
+        byte[] pdf = readFromDisk(tag);
+        if (pdf != null) {
+            diskHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return pdf;
+    }
+
+    public void put(InvoiceVersion version, byte[] pdf) {
+        String tag = tag(version);
+        putInMemory(version.getId(), tag, pdf);
+        writeToDisk(version.getId(), tag, pdf);
+    }
+
+    public boolean accepts(int size) {
+        return size <= maxEntryBytes;
+    }
+
+    public void evict(Long invoiceId) {
+        synchronized (this) {
+            removeEntry(invoiceId);
+        }
+        deleteFromDisk(invoiceId, null);
+    }
+
+    public void evictAll(Collection<Long> invoiceIds) {
+        synchronized (this) {
+            for (Long invoiceId : invoiceIds) {
+                removeEntry(invoiceId);
+            }
+        }
+        if (diskDirectory == null || invoiceIds.isEmpty()) {
+            return;
+        }
+        // One pass over the directory rather than one listing per invoice
+        Set<String> prefixes = new HashSet<>();
+        for (Long invoiceId : invoiceIds) {
+            prefixes.add(invoiceId + "-");
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, "*.pdf")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dash = name.indexOf('-');
+                if (dash > 0 && prefixes.contains(name.substring(0, dash + 1))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to evict cached PDFs for {} invoices: {}", invoiceIds.size(), e.getMessage());
+        }
+    }
+
+    private synchronized void putInMemory(Long invoiceId, String tag, byte[] pdf) {
+        if (!accepts(pdf.length)) {
+            return;
+        }
+        removeEntry(invoiceId);
+        entries.put(invoiceId, new Entry(tag, pdf));
+        totalBytes += pdf.length;
+
+        // Least recently used entries go first
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().getValue().pdf.length;
+            eldest.remove();
+        }
+    }
+
+    private void removeEntry(Long invoiceId) {
+        Entry removed = entries.remove(invoiceId);
+        if (removed != null) {
+            totalBytes -= removed.pdf.length;
+        }
+    }
+
+    private byte[] readFromDisk(String tag) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(diskDirectory.resolve(tag + ".pdf"));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Unable to read cached PDF {}: {}", tag, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(Long invoiceId, String tag, byte[] pdf) {
+        if (diskDirectory == null) {
+            return;
+        }
+        try {
+            // Write under a temporary name first so readers never see a partial file
+            Path temp = Files.createTempFile(diskDirectory, tag, ".tmp");
+            Files.write(temp, pdf);
+            Files.move(temp, diskDirectory.resolve(tag + ".pdf"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteFromDisk(invoiceId, tag);
+        } catch (IOException e) {
+            log.warn("Unable to cache PDF {} on disk: {}", tag, e.getMessage());
+        }
+    }
+
+    private void deleteFromDisk(Long invoiceId, String keepTag) {
+        if (diskDirectory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, invoiceId + "-*.pdf")) {
+            for (Path file : files) {
+                if (keepTag == null || !file.getFileName().toString().equals(keepTag + ".pdf")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to evict cached PDFs for invoice {}: {}", invoiceId, e.getMessage());
+        }
+    }
+
+    private static long epochMillis(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+    }
+
+    private static final class Entry {
+        final String tag;
+        final byte[] pdf;
+
+        Entry(String tag, byte[] pdf) {
+            this.tag = tag;
+            this.pdf = pdf;
+        }
+    }
+}
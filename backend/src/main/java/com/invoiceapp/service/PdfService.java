@@ -1,141 +1,280 @@
 package com.invoiceapp.service;
 
+import com.invoiceapp.dto.InvoiceVersion;
 import com.invoiceapp.entity.Invoice;
-import com.invoiceapp.entity.InvoiceItem;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Paragraph;
-import com.itextpdf.layout.element.Table;
-import com.itextpdf.layout.element.Cell;
-import com.itextpdf.layout.properties.TextAlignment;
-import com.itextpdf.layout.properties.UnitValue;
+import com.invoiceapp.repository.InvoiceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.math.BigDecimal;
-import java.time.format.DateTimeFormatter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+// Renders invoice PDFs through the cache. Renders are CPU-bound, so the number running at once is capped by a
+// semaphore shared by downloads, email attachments and exports; with requests on virtual threads nothing else
+// would stop a burst of downloads from starting a render each.
 @Service
 public class PdfService {
 
-    public byte[] generateInvoicePdf(Invoice invoice) {
+    private static final Logger log = LoggerFactory.getLogger(PdfService.class);
+
+    private static final int MIN_CHUNK_BYTES = 8 * 1024;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    @Autowired
+    private InvoicePdfRenderer renderer;
+
+    @Autowired
+    private PdfCache pdfCache;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 0 means one per available processor
+    @Value("${invoice.pdf.max-concurrent-renders:0}")
+    private int maxConcurrentRenders;
+
+    @Value("${invoice.pdf.render-wait-ms:30000}")
+    private long renderWaitMs;
+
+    private Semaphore renderPermits;
+    private Counter rejectedRenders;
+    private Timer renderTimer;
+    private Timer renderErrorTimer;
+    private DistributionSummary renderedBytes;
+    private DistributionSummary renderedItems;
+
+    @PostConstruct
+    void init() {
+        if (maxConcurrentRenders <= 0) {
+            maxConcurrentRenders = Runtime.getRuntime().availableProcessors();
+        }
+        renderPermits = new Semaphore(maxConcurrentRenders, true);
+        Gauge.builder("invoice.pdf.renders.active", renderPermits, permits -> maxConcurrentRenders - permits.availablePermits())
+                .description("PDF renders in progress").register(meterRegistry);
+        Gauge.builder("invoice.pdf.renders.waiting", renderPermits, Semaphore::getQueueLength)
+                .description("PDF renders waiting for a free slot").register(meterRegistry);
+        rejectedRenders = Counter.builder("invoice.pdf.renders.rejected")
+                .description("PDF renders refused after waiting render-wait-ms for a slot").register(meterRegistry);
+        renderTimer = Timer.builder("invoice.pdf.render").description("Time to render an invoice PDF")
+                .tag("outcome", "success").register(meterRegistry);
+        renderErrorTimer = Timer.builder("invoice.pdf.render").description("Time to render an invoice PDF")
+                .tag("outcome", "error").register(meterRegistry);
+        renderedBytes = DistributionSummary.builder("invoice.pdf.size").description("Size of rendered invoice PDFs")
+                .baseUnit("bytes").register(meterRegistry);
+        renderedItems = DistributionSummary.builder("invoice.pdf.items").description("Line items per rendered invoice")
+                .register(meterRegistry);
+    }
+
+    public Optional<InvoiceVersion> getInvoiceVersion(Long invoiceId) {
+        return invoiceRepository.findVersionById(invoiceId);
+    }
+
+    public byte[] getCachedPdf(InvoiceVersion version) {
+        return pdfCache.get(version);
+    }
+
+    // Renders into a spool under the render slot and copies it to the client after releasing the slot, so a slow
+    // client never holds one. The spool keeps the document in memory chunks while the cache would take it and
+    // moves it to a temporary file past that.
+    public void writeInvoicePdf(Invoice invoice, OutputStream out) throws IOException {
+        InvoiceVersion version = versionOf(invoice);
+        byte[] cached = pdfCache.get(version);
+        if (cached != null) {
+            out.write(cached);
+            return;
+        }
+        Spool spool = new Spool(renderer.estimateSize(invoice));
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfWriter writer = new PdfWriter(baos);
-            PdfDocument pdfDoc = new PdfDocument(writer);
-            Document document = new Document(pdfDoc);
-
-            // Title
-            document.add(new Paragraph("INVOICE")
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setFontSize(20)
-                    .setBold());
-
-            document.add(new Paragraph("\n"));
-
-            // Invoice details
-            Table headerTable = new Table(UnitValue.createPercentArray(new float[]{50, 50}));
-            headerTable.setWidth(UnitValue.createPercentValue(100));
-
-            // Company info (left side)
-            Cell companyCell = new Cell();
-            companyCell.add(new Paragraph("Your Company Name").setBold());
-            companyCell.add(new Paragraph("123 Business Street"));
-            companyCell.add(new Paragraph("City, State 12345"));
-            companyCell.add(new Paragraph("Phone: (555) 123-4567"));
-            companyCell.add(new Paragraph("Email: info@company.com"));
-            headerTable.addCell(companyCell);
-
-            // Invoice info (right side)
-            Cell invoiceInfoCell = new Cell();
-            invoiceInfoCell.add(new Paragraph("Invoice #: " + invoice.getInvoiceNumber()).setBold());
-            invoiceInfoCell.add(new Paragraph("Invoice Date: " + 
-                    invoice.getInvoiceDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy"))));
-            invoiceInfoCell.add(new Paragraph("Due Date: " + 
-                    invoice.getDueDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy"))));
-            invoiceInfoCell.add(new Paragraph("Status: " + invoice.getPaymentStatus().toString()));
-            headerTable.addCell(invoiceInfoCell);
-
-            document.add(headerTable);
-            document.add(new Paragraph("\n"));
-
-            // Bill to
-            document.add(new Paragraph("Bill To:").setBold());
-            document.add(new Paragraph(invoice.getClient().getName()));
-            if (invoice.getClient().getAddress() != null) {
-                document.add(new Paragraph(invoice.getClient().getAddress()));
+            acquireRenderSlot();
+            long started = System.nanoTime();
+            try {
+                renderer.render(invoice, spool);
+                spool.close();
+            } catch (Exception e) {
+                renderErrorTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                throw new RuntimeException("Error generating PDF: " + e.getMessage(), e);
+            } finally {
+                renderPermits.release();
             }
-            if (invoice.getClient().getCity() != null) {
-                String cityLine = invoice.getClient().getCity();
-                if (invoice.getClient().getState() != null) {
-                    cityLine += ", " + invoice.getClient().getState();
-                }
-                if (invoice.getClient().getZipCode() != null) {
-                    cityLine += " " + invoice.getClient().getZipCode();
-                }
-                document.add(new Paragraph(cityLine));
-            }
-            document.add(new Paragraph("Email: " + invoice.getClient().getEmail()));
-
-            document.add(new Paragraph("\n"));
-
-            // Items table
-            Table itemsTable = new Table(UnitValue.createPercentArray(new float[]{50, 15, 15, 20}));
-            itemsTable.setWidth(UnitValue.createPercentValue(100));
-
-            // Table headers
-            itemsTable.addHeaderCell(new Cell().add(new Paragraph("Description").setBold()));
-            itemsTable.addHeaderCell(new Cell().add(new Paragraph("Quantity").setBold()).setTextAlignment(TextAlignment.RIGHT));
-            itemsTable.addHeaderCell(new Cell().add(new Paragraph("Unit Price").setBold()).setTextAlignment(TextAlignment.RIGHT));
-            itemsTable.addHeaderCell(new Cell().add(new Paragraph("Total").setBold()).setTextAlignment(TextAlignment.RIGHT));
-
-            // Add items
-            for (InvoiceItem item : invoice.getItems()) {
-                itemsTable.addCell(new Cell().add(new Paragraph(item.getDescription())));
-                itemsTable.addCell(new Cell().add(new Paragraph(item.getQuantity().toString())).setTextAlignment(TextAlignment.RIGHT));
-                itemsTable.addCell(new Cell().add(new Paragraph("$" + item.getUnitPrice().toString())).setTextAlignment(TextAlignment.RIGHT));
-                itemsTable.addCell(new Cell().add(new Paragraph("$" + item.getTotal().toString())).setTextAlignment(TextAlignment.RIGHT));
+            recordRender(invoice, started, spool.size);
+
+            if (spool.file == null) {
+                byte[] pdf = spool.drain();
+                pdfCache.put(version, pdf);
+                out.write(pdf);
+            } else {
+                Files.copy(spool.file, out);
             }
+        } finally {
+            spool.discard();
+        }
+    }
 
-            document.add(itemsTable);
-            document.add(new Paragraph("\n"));
+    public byte[] getInvoicePdf(Invoice invoice) {
+        InvoiceVersion version = versionOf(invoice);
+        byte[] cached = pdfCache.get(version);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] pdf = generateInvoicePdf(invoice);
+        pdfCache.put(version, pdf);
+        return pdf;
+    }
 
-            // Totals
-            Table totalsTable = new Table(UnitValue.createPercentArray(new float[]{70, 30}));
-            totalsTable.setWidth(UnitValue.createPercentValue(100));
+    // Serves a cached copy when there is one but leaves what it renders out of the cache, so a bulk export
+    // neither evicts the entries interactive downloads rely on nor fills the disk tier
+    public byte[] readInvoicePdf(Invoice invoice) {
+        byte[] cached = pdfCache.peek(versionOf(invoice));
+        return cached != null ? cached : generateInvoicePdf(invoice);
+    }
 
-            totalsTable.addCell(new Cell().add(new Paragraph("Subtotal:")).setTextAlignment(TextAlignment.RIGHT));
-            totalsTable.addCell(new Cell().add(new Paragraph("$" + invoice.getSubtotal().toString())).setTextAlignment(TextAlignment.RIGHT));
+    public byte[] generateInvoicePdf(Invoice invoice) {
+        acquireRenderSlot();
+        long started = System.nanoTime();
+        byte[] pdf;
+        try {
+            pdf = renderer.render(invoice);
+        } catch (Exception e) {
+            renderErrorTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw new RuntimeException("Error generating PDF: " + e.getMessage(), e);
+        } finally {
+            renderPermits.release();
+        }
+        recordRender(invoice, started, pdf.length);
+        return pdf;
+    }
 
-            if (invoice.getTaxRate().compareTo(BigDecimal.ZERO) > 0) {
-                totalsTable.addCell(new Cell().add(new Paragraph("Tax (" + invoice.getTaxRate() + "%):")).setTextAlignment(TextAlignment.RIGHT));
-                totalsTable.addCell(new Cell().add(new Paragraph("$" + invoice.getTaxAmount().toString())).setTextAlignment(TextAlignment.RIGHT));
+    private void acquireRenderSlot() {
+        try {
+            if (!renderPermits.tryAcquire(renderWaitMs, TimeUnit.MILLISECONDS)) {
+                rejectedRenders.increment();
+                throw new RuntimeException("Error generating PDF: too many renders in progress, try again later");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error generating PDF: interrupted waiting to render", e);
+        }
+    }
 
-            totalsTable.addCell(new Cell().add(new Paragraph("Total:").setBold()).setTextAlignment(TextAlignment.RIGHT));
-            totalsTable.addCell(new Cell().add(new Paragraph("$" + invoice.getTotal().toString()).setBold()).setTextAlignment(TextAlignment.RIGHT));
+    private void recordRender(Invoice invoice, long started, long bytes) {
+        renderTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        renderedBytes.record(bytes);
+        renderedItems.record(invoice.getItems() != null ? invoice.getItems().size() : 0);
+    }
 
-            document.add(totalsTable);
+    private static InvoiceVersion versionOf(Invoice invoice) {
+        return new InvoiceVersion(invoice.getId(), invoice.getInvoiceNumber(),
+                invoice.getUpdatedAt(), invoice.getClient().getUpdatedAt());
+    }
+
+    // Render output: chunks in memory until the document outgrows what the cache accepts, then a temporary file
+    private class Spool extends OutputStream {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] chunk;
+        private int chunkUsed;
+        private long size;
+        private Path file;
+        private OutputStream fileOut;
+
+        Spool(int expectedSize) {
+            chunk = new byte[Math.min(Math.max(expectedSize, MIN_CHUNK_BYTES), CHUNK_BYTES)];
+        }
 
-            // Notes and terms
-            if (invoice.getNotes() != null && !invoice.getNotes().isEmpty()) {
-                document.add(new Paragraph("\n"));
-                document.add(new Paragraph("Notes:").setBold());
-                document.add(new Paragraph(invoice.getNotes()));
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            size += len;
+            if (fileOut != null) {
+                fileOut.write(b, off, len);
+                return;
             }
+            while (len > 0) {
+                if (chunkUsed == chunk.length) {
+                    chunks.add(chunk);
+                    chunk = new byte[CHUNK_BYTES];
+                    chunkUsed = 0;
+                }
+                int copied = Math.min(len, chunk.length - chunkUsed);
+                System.arraycopy(b, off, chunk, chunkUsed, copied);
+                chunkUsed += copied;
+                off += copied;
+                len -= copied;
+            }
+            if (size > Integer.MAX_VALUE || !pdfCache.accepts((int) size)) {
+                spill();
+            }
+        }
 
-            if (invoice.getTerms() != null && !invoice.getTerms().isEmpty()) {
-                document.add(new Paragraph("\n"));
-                document.add(new Paragraph("Terms:").setBold());
-                document.add(new Paragraph(invoice.getTerms()));
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null) {
+                fileOut.close();
             }
+        }
 
-            document.close();
-            return baos.toByteArray();
+        // Moves what is held in memory to a temporary file that takes the rest of the document
+        private void spill() throws IOException {
+            file = Files.createTempFile("invoice-pdf-", ".pdf");
+            fileOut = new BufferedOutputStream(Files.newOutputStream(file), CHUNK_BYTES);
+            for (byte[] full : chunks) {
+                fileOut.write(full);
+            }
+            fileOut.write(chunk, 0, chunkUsed);
+            chunks.clear();
+            chunk = null;
+        }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Error generating PDF: " + e.getMessage(), e);
+        // The whole document as one array, letting go of each chunk once copied so it is held about once
+        byte[] drain() {
+            byte[] pdf = new byte[(int) size];
+            int position = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                byte[] full = chunks.set(i, null);
+                System.arraycopy(full, 0, pdf, position, full.length);
+                position += full.length;
+            }
+            System.arraycopy(chunk, 0, pdf, position, chunkUsed);
+            chunks.clear();
+            chunk = null;
+            return pdf;
+        }
+
+        void discard() {
+            if (file == null) {
+                return;
+            }
+            try {
+                if (fileOut != null) {
+                    fileOut.close();
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Unable to delete PDF spool file {}: {}", file, e.getMessage());
+            }
         }
     }
 }
@@ -0,0 +1,319 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.config.ReadYourWrites;
+import com.invoiceapp.dto.AgingReport;
+import com.invoiceapp.dto.ClientRevenue;
+import com.invoiceapp.dto.DsoReport;
+import com.invoiceapp.dto.MonthlyRevenue;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.repository.ClientRepository;
+import com.invoiceapp.repository.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Revenue, receivables aging and DSO computed by aggregate queries, so a report transfers one row per group
+// instead of the invoices behind it. Reports on closed periods (ending before the current month) are kept in
+// an LRU; invoice writes evict the entries whose period covers the invoice date once their transaction commits,
+// and a TTL bounds how long writes made on other nodes can go unseen.
+@Service
+public class ReportService {
+
+    private static final int MAX_MONTHS = 240;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Value("${invoice.report.cache-entries:1000}")
+    private int cacheEntries;
+
+    @Value("${invoice.report.cache-ttl-ms:3600000}")
+    private long cacheTtlMs;
+
+    private final PeriodCache cache = new PeriodCache();
+
+    @Transactional(readOnly = true)
+    public List<MonthlyRevenue> getMonthlyRevenue(YearMonth startMonth, YearMonth endMonth) {
+        if (startMonth.isAfter(endMonth)) {
+            throw new RuntimeException("Start month must not be after end month");
+        }
+        if (ChronoUnit.MONTHS.between(startMonth, endMonth) >= MAX_MONTHS) {
+            throw new RuntimeException("Monthly revenue covers at most " + MAX_MONTHS + " months");
+        }
+        YearMonth currentMonth = YearMonth.now();
+        long generation = cache.generation();
+
+        // Serve closed months from the cache and query one range spanning the rest
+        Map<YearMonth, MonthlyRevenue> months = new HashMap<>();
+        YearMonth firstMissing = null;
+        YearMonth lastMissing = null;
+        for (YearMonth month = startMonth; !month.isAfter(endMonth); month = month.plusMonths(1)) {
+            MonthlyRevenue cached = month.isBefore(currentMonth) ? (MonthlyRevenue) cache.get("monthly:" + month) : null;
+            if (cached != null) {
+                months.put(month, cached);
+            } else {
+                if (firstMissing == null) {
+                    firstMissing = month;
+                }
+                lastMissing = month;
+            }
+        }
+        if (firstMissing != null) {
+            Map<YearMonth, MonthlyRevenue> loaded = new HashMap<>();
+            for (Object[] row : reportRepository.sumByMonth(firstMissing.atDay(1), lastMissing.atEndOfMonth())) {
+                YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+                loaded.put(month, new MonthlyRevenue(month.toString(), ((Number) row[2]).longValue(),
+                        amount(row[3]), amount(row[4])));
+            }
+            for (YearMonth month = firstMissing; !month.isAfter(lastMissing); month = month.plusMonths(1)) {
+                if (months.containsKey(month)) {
+                    continue;
+                }
+                MonthlyRevenue revenue = loaded.get(month);
+                if (revenue == null) {
+                    revenue = new MonthlyRevenue(month.toString(), 0, BigDecimal.ZERO, BigDecimal.ZERO);
+                }
+                months.put(month, revenue);
+                if (month.isBefore(currentMonth)) {
+                    cache.put("monthly:" + month, revenue, month.atDay(1), month.atEndOfMonth(), generation);
+                }
+            }
+        }
+
+        List<MonthlyRevenue> report = new ArrayList<>(months.size());
+        for (YearMonth month = startMonth; !month.isAfter(endMonth); month = month.plusMonths(1)) {
+            report.add(months.get(month));
+        }
+        return report;
+    }
+
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<ClientRevenue> getRevenueByClient(LocalDate startDate, LocalDate endDate, int limit) {
+        checkRange(startDate, endDate);
+        String key = "clients:" + startDate + ":" + endDate + ":" + limit;
+        boolean closed = isClosed(endDate);
+        long generation = cache.generation();
+        if (closed) {
+            List<ClientRevenue> cached = (List<ClientRevenue>) cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<Object[]> rows = reportRepository.sumByClient(startDate, endDate, PageRequest.of(0, limit));
+        // Names only for the clients that made the cut
+        Set<Long> clientIds = new HashSet<>();
+        for (Object[] row : rows) {
+            clientIds.add((Long) row[0]);
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (Client client : clientRepository.findAllById(clientIds)) {
+            names.put(client.getId(), client.getName());
+        }
+        List<ClientRevenue> report = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long clientId = (Long) row[0];
+            report.add(new ClientRevenue(clientId, names.get(clientId), ((Number) row[1]).longValue(),
+                    amount(row[2]), amount(row[3])));
+        }
+
+        if (closed) {
+            cache.put(key, report, startDate, endDate, generation);
+        }
+        return report;
+    }
+
+    // Open invoices issued on or before asOf, bucketed by days past due at that date
+    @Transactional(readOnly = true)
+    public AgingReport getAging(LocalDate asOf) {
+        String key = "aging:" + asOf;
+        boolean closed = isClosed(asOf);
+        long generation = cache.generation();
+        if (closed) {
+            AgingReport cached = (AgingReport) cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Object[] row = reportRepository.sumByAge(asOf, asOf.minusDays(30), asOf.minusDays(60), asOf.minusDays(90)).get(0);
+        String[] labels = {"current", "0-30", "31-60", "61-90", "90+"};
+        List<AgingReport.Bucket> buckets = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            long count = row[2 * i] != null ? ((Number) row[2 * i]).longValue() : 0;
+            buckets.add(new AgingReport.Bucket(labels[i], count, amount(row[2 * i + 1])));
+        }
+        AgingReport report = new AgingReport(asOf, buckets);
+
+        if (closed) {
+            cache.put(key, report, LocalDate.MIN, asOf, generation);
+        }
+        return report;
+    }
+
+    // Receivables at the end of the period over the period's sales, times its length in days. Invoices do not
+    // record when they were paid, so receivables are the invoices issued by endDate that are still open today.
+    @Transactional(readOnly = true)
+    public DsoReport getDso(LocalDate startDate, LocalDate endDate) {
+        checkRange(startDate, endDate);
+        String key = "dso:" + startDate + ":" + endDate;
+        boolean closed = isClosed(endDate);
+        long generation = cache.generation();
+        if (closed) {
+            DsoReport cached = (DsoReport) cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        BigDecimal sales = reportRepository.sumInvoiced(startDate, endDate);
+        BigDecimal receivables = reportRepository.sumReceivable(endDate);
+        BigDecimal dso = sales.signum() == 0 ? null
+                : receivables.multiply(BigDecimal.valueOf(days)).divide(sales, 1, RoundingMode.HALF_UP);
+        DsoReport report = new DsoReport(startDate, endDate, days, sales, receivables, dso);
+
+        if (closed) {
+            cache.put(key, report, LocalDate.MIN, endDate, generation);
+        }
+        return report;
+    }
+
+    // Call from the transaction that wrote invoices dated on these days
+    public void evictPeriods(Collection<LocalDate> invoiceDates) {
+        Set<LocalDate> dates = new HashSet<>();
+        for (LocalDate date : invoiceDates) {
+            if (date != null) {
+                dates.add(date);
+            }
+        }
+        if (!dates.isEmpty()) {
+            afterCommit(() -> cache.evictCovering(dates));
+        }
+    }
+
+    // Client names are part of the cached reports
+    public void evictAll() {
+        afterCommit(cache::clear);
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private static void checkRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("Start date must not be after end date");
+        }
+    }
+
+    private static boolean isClosed(LocalDate endDate) {
+        return endDate.isBefore(YearMonth.now().atDay(1));
+    }
+
+    private static BigDecimal amount(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    // LRU of report results, each tagged with the span of invoice dates it was computed from. The generation
+    // moves on every eviction, so a result computed while a write was committing is never stored.
+    private final class PeriodCache {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long generation;
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        synchronized Object get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() > entry.expiresAt) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        synchronized void put(String key, Object value, LocalDate startDate, LocalDate endDate, long computedAt) {
+            // Nor one read from a replica that may not have applied this node's latest writes yet
+            if (computedAt != generation || ReadYourWrites.replicaMayBeStale()) {
+                return;
+            }
+            entries.put(key, new Entry(value, startDate, endDate, System.currentTimeMillis() + cacheTtlMs));
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > cacheEntries) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        synchronized void evictCovering(Set<LocalDate> dates) {
+            generation++;
+            entries.values().removeIf(entry -> {
+                for (LocalDate date : dates) {
+                    if (!date.isBefore(entry.startDate) && !date.isAfter(entry.endDate)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+
+        synchronized void clear() {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final LocalDate startDate;
+        final LocalDate endDate;
+        final long expiresAt;
+
+        Entry(Object value, LocalDate startDate, LocalDate endDate, long expiresAt) {
+            this.value = value;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
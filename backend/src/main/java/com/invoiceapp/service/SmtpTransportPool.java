@@ -0,0 +1,186 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.SmtpStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Small pool of connected, authenticated SMTP transports built from the JavaMailSenderImpl settings, so a
+// run of messages pays for the TCP, STARTTLS and AUTH handshake once per connection instead of per message.
+// Connections are retired after a number of messages or when idle too long, since servers drop both.
+@Component
+public class SmtpTransportPool implements MeterBinder {
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Value("${email.smtp.pool-size:4}")
+    private int poolSize;
+
+    @Value("${email.smtp.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${email.smtp.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    @Value("${email.smtp.borrow-timeout-ms:60000}")
+    private long borrowTimeoutMs;
+
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private Semaphore permits;
+
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(poolSize, true);
+    }
+
+    // Waits up to borrow-timeout-ms for a free connection; the caller must hand it back with release() or discard()
+    public PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection free after " + borrowTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.isReusable()) {
+                    return pooled;
+                }
+                pooled.close();
+            }
+            return connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(PooledTransport pooled) {
+        if (pooled.messages < maxMessagesPerConnection) {
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            pooled.close();
+        }
+        permits.release();
+    }
+
+    // For connections that failed mid-conversation and may be in an unknown protocol state
+    public void discard(PooledTransport pooled) {
+        pooled.close();
+        permits.release();
+    }
+
+    public void send(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        // Same preparation JavaMailSenderImpl does before handing a message to its transport
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        message.saveChanges();
+        try {
+            pooled.transport.sendMessage(message, message.getAllRecipients());
+            pooled.messages++;
+            messagesSent.incrementAndGet();
+        } catch (MessagingException e) {
+            failedSends.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("smtp.connections.opened", handshakes, AtomicLong::get)
+                .description("SMTP connections opened, each paying the TCP, TLS and AUTH handshake").register(registry);
+        FunctionCounter.builder("smtp.messages", messagesSent, AtomicLong::get).tag("outcome", "sent").register(registry);
+        FunctionCounter.builder("smtp.messages", failedSends, AtomicLong::get).tag("outcome", "failed").register(registry);
+        Gauge.builder("smtp.connections.idle", idle, LinkedBlockingDeque::size).register(registry);
+        Gauge.builder("smtp.connections.available", this, pool -> pool.permits.availablePermits())
+                .description("Connections that can be borrowed without waiting").register(registry);
+    }
+
+    public SmtpStats getStats() {
+        long sent = messagesSent.get();
+        long connections = handshakes.get();
+        return new SmtpStats(connections, sent, failedSends.get(), Math.max(0, sent - connections), idle.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        // Resolved the way JavaMailSenderImpl resolves it; the protocol is only set when configured through Boot
+        String protocol = mailSender.getProtocol();
+        if (protocol == null) {
+            protocol = mailSender.getSession().getProperty("mail.transport.protocol");
+            if (protocol == null) {
+                protocol = JavaMailSenderImpl.DEFAULT_PROTOCOL;
+            }
+        }
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        handshakes.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    public final class PooledTransport {
+        private final Transport transport;
+        private int messages;
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        // isConnected() costs a NOOP round trip, still far cheaper than a new handshake
+        boolean isReusable() {
+            return messages < maxMessagesPerConnection
+                    && System.currentTimeMillis() - lastUsed < idleTimeoutMs
+                    && transport.isConnected();
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // Already broken; nothing left to release
+            }
+        }
+    }
+}
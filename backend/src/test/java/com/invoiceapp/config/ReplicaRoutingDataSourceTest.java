@@ -0,0 +1,101 @@
+package com.invoiceapp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Routes between two in-memory databases and checks which committed transactions count as writes
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate routed;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "sa", "");
+        primary = new JdbcTemplate(primaryDataSource);
+        primary.execute("CREATE TABLE IF NOT EXISTS note (id INT PRIMARY KEY, origin VARCHAR(10))");
+        primary.execute("MERGE INTO note KEY (id) VALUES (1, 'primary')");
+        new JdbcTemplate(replicaDataSource).execute("CREATE TABLE IF NOT EXISTS note (id INT PRIMARY KEY, origin VARCHAR(10))");
+        new JdbcTemplate(replicaDataSource).execute("MERGE INTO note KEY (id) VALUES (1, 'replica')");
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(5000);
+        routing.setTargetDataSources(Map.of(ReplicaRoutingDataSource.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        ReflectionTestUtils.setField(ReadYourWrites.class, "replicaStaleUntil", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.update("DELETE FROM note WHERE id > 1");
+        ReadYourWrites.clear();
+        ReflectionTestUtils.setField(ReadYourWrites.class, "replicaStaleUntil", 0L);
+    }
+
+    @Test
+    void onlyTransactionsThatChangedRowsRecordAWrite() {
+        readWrite.executeWithoutResult(status -> routed.queryForObject("SELECT origin FROM note WHERE id = 1", String.class));
+        readWrite.executeWithoutResult(status -> routed.update("UPDATE note SET origin = 'x' WHERE id = 99"));
+        assertThat(ReadYourWrites.replicaMayBeStale()).isFalse();
+
+        readWrite.executeWithoutResult(status -> routed.batchUpdate("INSERT INTO note VALUES (2, 'batch')"));
+        assertThat(ReadYourWrites.replicaMayBeStale()).isTrue();
+    }
+
+    @Test
+    void rolledBackWritesAreNotRecorded() {
+        readWrite.executeWithoutResult(status -> {
+            routed.update("INSERT INTO note VALUES (2, 'rolled')");
+            status.setRollbackOnly();
+        });
+        assertThat(ReadYourWrites.replicaMayBeStale()).isFalse();
+    }
+
+    @Test
+    void requestThreadsArePinnedToThePrimaryAfterAWrite() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ReadYourWrites.bind(response, 0);
+        assertThat(readOnlyOrigin()).isEqualTo("replica");
+
+        readWrite.executeWithoutResult(status -> routed.update("INSERT INTO note VALUES (2, 'request')"));
+        assertThat(ReadYourWrites.isPinned()).isTrue();
+        assertThat(response.getCookie(ReadYourWrites.COOKIE)).isNotNull();
+        assertThat(readOnlyOrigin()).isEqualTo("primary");
+    }
+
+    @Test
+    void threadsOutsideARequestAreNotPinned() {
+        readWrite.executeWithoutResult(status -> routed.update("INSERT INTO note VALUES (2, 'job')"));
+        assertThat(ReadYourWrites.replicaMayBeStale()).isTrue();
+        assertThat(ReadYourWrites.isPinned()).isFalse();
+        assertThat(readOnlyOrigin()).isEqualTo("replica");
+    }
+
+    // Which database a read-only transaction was routed to
+    private String readOnlyOrigin() {
+        return readOnly.execute(status -> routed.queryForObject("SELECT origin FROM note WHERE id = 1", String.class));
+    }
+}
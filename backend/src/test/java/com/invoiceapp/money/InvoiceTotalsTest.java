@@ -0,0 +1,198 @@
+package com.invoiceapp.money;
+
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Checks Invoice.calculateTotals against the BigDecimal formula it replaced: subtotal = sum(q x p), tax =
+// subtotal x rate / 100, total = subtotal + tax, each rounded half up to two decimals. Discounts and per-line
+// rates extend it the obvious way, with the net q x p x (100 - discount) / 100 and the tax summed per line rate.
+class InvoiceTotalsTest {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final Random random = new Random(11);
+
+    @Test
+    void matchesTheBigDecimalFormulaForTypicalLines() {
+        assertMatchesFormula("18", line("3", "19.99"), line("1.5", "120.00"), line("2", "0.05"));
+        assertMatchesFormula("7.25", line("0.01", "0.01"));
+        assertMatchesFormula("0", line("12", "8.33"));
+        assertMatchesFormula(null, line("1", "10.00"));
+    }
+
+    @Test
+    void matchesAtFifteenDigits() {
+        // The largest values the double read of the long path accepts, and the first ones past it
+        assertMatchesFormula("18", line("9999999999999.99", "1"), line("1", "9999999999999.99"));
+        assertMatchesFormula("18", line("123456789012.345", "1"), line("1", "99999999999999.99"));
+        assertMatchesFormula("12.5", line("4398046511103.99", "1.01"), line("1125899906842.62", "3"));
+        assertMatchesFormula("5", line("999999999999999", "1"), line("1000000000000000", "1"));
+    }
+
+    @Test
+    void matchesWithFinerScales() {
+        assertMatchesFormula("18", line("0.125", "0.125"), line("1", "0.005"), line("3", "33.333"));
+        assertMatchesFormula("9.875", line("2.5", "19.995"), line("1E+2", "1.5"));
+        assertMatchesFormula("20", line("1", "0.004"), line("1", "0.001"));
+    }
+
+    @Test
+    void matchesWhenLinesOrSumsOverflowALong() {
+        assertMatchesFormula("18", line("9999999999999.99", "9999999999999.99"), line("2", "3.50"));
+        assertMatchesFormula("18", line("99999999.99", "99999999.99"), line("99999999.99", "99999999.99"),
+                line("99999999.99", "99999999.99"));
+        assertMatchesFormula("18", withDiscount(line("92233720.36", "99999.99"), "12.5"),
+                line("922337.20", "9999.99"));
+    }
+
+    @Test
+    void matchesWithNegativePrices() {
+        assertMatchesFormula("18", line("2", "50.00"), line("1", "-10.505"), line("3", "-0.01"));
+        assertMatchesFormula("18", line("1", "-0.025"));
+        assertMatchesFormula("18", line("1", "-9999999999999.99"), line("9999999999999.99", "-9999999999999.99"));
+    }
+
+    @Test
+    void matchesWithPerLineRatesAndDiscounts() {
+        assertMatchesFormula("18", withRate(line("2", "100.00"), "5"), withRate(line("1", "40.00"), "12.00"),
+                line("3", "9.99"), withRate(line("1", "0.01"), "0"));
+        assertMatchesFormula("18", withDiscount(line("3", "19.99"), "10"), withDiscount(line("1", "0.05"), "50"),
+                withDiscount(line("2", "7.00"), "100"), withDiscount(line("1", "9.99"), "0.5"));
+        assertMatchesFormula("7.5", withRate(withDiscount(line("1.5", "33.33"), "12.5"), "28"),
+                withRate(withDiscount(line("1", "-4.99"), "3.333"), "18.125"));
+    }
+
+    @Test
+    void matchesRandomInvoices() {
+        for (int i = 0; i < 5000; i++) {
+            List<InvoiceItem> items = new ArrayList<>();
+            int lines = 1 + random.nextInt(8);
+            for (int j = 0; j < lines; j++) {
+                InvoiceItem item = new InvoiceItem();
+                item.setQuantity(randomAmount());
+                item.setUnitPrice(randomAmount());
+                if (random.nextInt(3) == 0) {
+                    item.setDiscountPercent(randomPercent());
+                }
+                if (random.nextInt(3) == 0) {
+                    item.setTaxRate(randomPercent());
+                }
+                items.add(item);
+            }
+            assertMatchesFormula(random.nextInt(5) == 0 ? null : randomPercent().toPlainString(),
+                    items.toArray(new InvoiceItem[0]));
+        }
+    }
+
+    @Test
+    void lineTotalsRoundOnceInEveryMode() {
+        for (RoundingMode mode : RoundingMode.values()) {
+            if (mode == RoundingMode.UNNECESSARY) {
+                continue;
+            }
+            for (int digits = 0; digits <= 3; digits++) {
+                MoneyCalculator calculator = new MoneyCalculator(digits, mode);
+                for (int i = 0; i < 2000; i++) {
+                    BigDecimal quantity = randomAmount();
+                    BigDecimal unitPrice = randomAmount();
+                    BigDecimal discount = random.nextBoolean() ? randomPercent() : null;
+                    BigDecimal expected = net(quantity, unitPrice, discount).setScale(digits, mode);
+                    assertThat(calculator.lineTotal(quantity, unitPrice, discount))
+                            .as("%s x %s less %s%% at %s %s", quantity, unitPrice, discount, digits, mode)
+                            .isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    private void assertMatchesFormula(String invoiceRate, InvoiceItem... lines) {
+        Invoice invoice = new Invoice();
+        invoice.setTaxRate(invoiceRate == null ? null : new BigDecimal(invoiceRate));
+        invoice.setItems(List.of(lines));
+        invoice.calculateTotals();
+
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal tax = BigDecimal.ZERO;
+        for (InvoiceItem item : lines) {
+            BigDecimal net = net(item.getQuantity(), item.getUnitPrice(), item.getDiscountPercent());
+            BigDecimal rate = item.getTaxRate() != null ? item.getTaxRate() : invoice.getTaxRate();
+            subtotal = subtotal.add(net);
+            if (rate != null) {
+                tax = tax.add(net.multiply(rate).divide(HUNDRED));
+            }
+            assertThat(item.getTotal()).as("line %s x %s", item.getQuantity(), item.getUnitPrice())
+                    .isEqualTo(net.setScale(2, RoundingMode.HALF_UP));
+        }
+        String description = describe(invoiceRate, lines);
+        assertThat(invoice.getSubtotal()).as("subtotal of %s", description).isEqualTo(subtotal.setScale(2, RoundingMode.HALF_UP));
+        assertThat(invoice.getTaxAmount()).as("tax of %s", description).isEqualTo(tax.setScale(2, RoundingMode.HALF_UP));
+        assertThat(invoice.getTotal()).as("total of %s", description)
+                .isEqualTo(subtotal.add(tax).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private static BigDecimal net(BigDecimal quantity, BigDecimal unitPrice, BigDecimal discount) {
+        BigDecimal gross = quantity.multiply(unitPrice);
+        return discount == null ? gross : gross.multiply(HUNDRED.subtract(discount)).divide(HUNDRED);
+    }
+
+    // Mostly two-decimal amounts, with some finer, negative and very large ones
+    private BigDecimal randomAmount() {
+        switch (random.nextInt(10)) {
+            case 0:
+                return BigDecimal.valueOf(random.nextLong() % 1_000_000_000_000_000L, 2);
+            case 1:
+                return BigDecimal.valueOf(random.nextInt(10_000_000), 3 + random.nextInt(3));
+            case 2:
+                return BigDecimal.valueOf(-random.nextInt(1_000_000), 2);
+            case 3:
+                return BigDecimal.valueOf(random.nextInt(1_000));
+            default:
+                return BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(3));
+        }
+    }
+
+    private BigDecimal randomPercent() {
+        return BigDecimal.valueOf(random.nextInt(10_001), random.nextInt(4) == 0 ? 3 : 2)
+                .min(HUNDRED);
+    }
+
+    private static InvoiceItem line(String quantity, String unitPrice) {
+        InvoiceItem item = new InvoiceItem();
+        item.setQuantity(new BigDecimal(quantity));
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        return item;
+    }
+
+    private static InvoiceItem withDiscount(InvoiceItem item, String percent) {
+        item.setDiscountPercent(new BigDecimal(percent));
+        return item;
+    }
+
+    private static InvoiceItem withRate(InvoiceItem item, String rate) {
+        item.setTaxRate(new BigDecimal(rate));
+        return item;
+    }
+
+    private static String describe(String invoiceRate, InvoiceItem[] lines) {
+        StringBuilder description = new StringBuilder("rate ").append(invoiceRate).append(':');
+        for (InvoiceItem item : lines) {
+            description.append(' ').append(item.getQuantity()).append(" x ").append(item.getUnitPrice());
+            if (item.getDiscountPercent() != null) {
+                description.append(" less ").append(item.getDiscountPercent()).append('%');
+            }
+            if (item.getTaxRate() != null) {
+                description.append(" at ").append(item.getTaxRate()).append('%');
+            }
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.entity.EmailOutboxMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EmailOutboxRepositoryTest {
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Test
+    void completeOnlyAppliesWhileTheClaimIsUnchanged() {
+        // Saved as already claimed, so the running poller leaves it alone
+        LocalDateTime firstClaim = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime secondClaim = firstClaim.plusSeconds(1);
+        EmailOutboxMessage message = new EmailOutboxMessage(EmailOutboxMessage.Type.REMINDER, 1L, null, null, null);
+        message.setStatus(EmailOutboxMessage.Status.SENDING);
+        message.setClaimedAt(secondClaim);
+        Long id = outboxRepository.save(message).getId();
+
+        // The first claim was released as stale and claimed again, so its outcome is dropped
+        assertThat(outboxRepository.complete(id, firstClaim, EmailOutboxMessage.Status.SENT, 1,
+                firstClaim, null, firstClaim)).isZero();
+        assertThat(outboxRepository.findById(id).orElseThrow().getStatus()).isEqualTo(EmailOutboxMessage.Status.SENDING);
+
+        assertThat(outboxRepository.complete(id, secondClaim, EmailOutboxMessage.Status.SENT, 1,
+                secondClaim, null, secondClaim)).isEqualTo(1);
+        EmailOutboxMessage sent = outboxRepository.findById(id).orElseThrow();
+        assertThat(sent.getStatus()).isEqualTo(EmailOutboxMessage.Status.SENT);
+        assertThat(sent.getAttempts()).isEqualTo(1);
+
+        // Finished sends cannot be overwritten by a late duplicate either
+        assertThat(outboxRepository.complete(id, secondClaim, EmailOutboxMessage.Status.PENDING, 2,
+                secondClaim, "late", null)).isZero();
+    }
+}
@@ -0,0 +1,161 @@
+package com.invoiceapp.repository;
+
+import com.invoiceapp.config.QueryCountInspector;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+import com.invoiceapp.service.ClientService;
+import com.invoiceapp.service.EmailService;
+import com.invoiceapp.service.InvoiceService;
+import com.invoiceapp.service.PdfService;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.http.HttpHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Loading an invoice for display, PDF rendering or email must take one SELECT for the invoice, its client
+// and its items, with nothing lazily loaded afterwards. Statements are counted on the test thread only.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class InvoiceDetailQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private EmailService emailService;
+
+    private List<Long> invoiceIds;
+
+    @BeforeEach
+    void createInvoices() {
+        Client client = clientService.saveClient(new Client("Query Count Ltd", "billing@querycount.test"));
+        invoiceIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Invoice invoice = new Invoice(null, client, LocalDate.now(), LocalDate.now().plusDays(30));
+            List<InvoiceItem> items = new ArrayList<>();
+            items.add(new InvoiceItem("Design", new BigDecimal("2"), new BigDecimal("150.00")));
+            items.add(new InvoiceItem("Hosting", new BigDecimal("1"), new BigDecimal("20.00")));
+            invoice.setItems(items);
+            invoiceIds.add(invoiceService.createInvoice(invoice).getId());
+        }
+    }
+
+    @Test
+    void getInvoiceByIdEndpointIssuesOneSelect() throws Exception {
+        QueryCountInspector.reset();
+        mockMvc.perform(get("/api/invoices/{id}", invoiceIds.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.client.name").value("Query Count Ltd"))
+                .andExpect(jsonPath("$.items.length()").value(2));
+        assertThat(QueryCountInspector.current()).isEqualTo(1);
+    }
+
+    @Test
+    void getInvoicesByIdsIssuesOneSelect() {
+        QueryCountInspector.reset();
+        List<Invoice> invoices = invoiceService.getInvoicesByIds(invoiceIds);
+        assertThat(invoices).hasSize(3);
+        for (Invoice invoice : invoices) {
+            assertThat(invoice.getClient().getEmail()).isEqualTo("billing@querycount.test");
+            assertThat(invoice.getItems()).hasSize(2);
+        }
+        assertThat(QueryCountInspector.current()).isEqualTo(1);
+    }
+
+    @Test
+    void pdfRenderNeedsNothingBeyondTheDetailSelect() {
+        QueryCountInspector.reset();
+        Invoice invoice = invoiceService.getInvoiceById(invoiceIds.get(0)).orElseThrow();
+        byte[] pdf = pdfService.generateInvoicePdf(invoice);
+        assertThat(pdf).isNotEmpty();
+        assertThat(QueryCountInspector.current()).isEqualTo(1);
+    }
+
+    @Test
+    void invoiceEmailAndReminderNeedNothingBeyondTheDetailSelect() {
+        // The outbox worker loads a batch of invoices with findDetailByIdIn and builds every message from it
+        QueryCountInspector.reset();
+        List<Invoice> invoices = invoiceRepository.findDetailByIdIn(invoiceIds);
+        for (Invoice invoice : invoices) {
+            MimeMessage email = emailService.buildInvoiceEmail(invoice, invoice.getClient().getEmail(), null, null);
+            MimeMessage reminder = emailService.buildPaymentReminder(invoice);
+            assertThat(email).isNotNull();
+            assertThat(reminder).isNotNull();
+        }
+        assertThat(QueryCountInspector.current()).isEqualTo(1);
+    }
+
+    @Test
+    void pdfEndpointLoadsTheInvoiceOnlyOnACacheMiss() throws Exception {
+        // Miss: the version lookup behind the ETag, then the detail SELECT for the render
+        QueryCountInspector.reset();
+        MvcResult miss = mockMvc.perform(get("/api/invoices/{id}/pdf", invoiceIds.get(0))).andReturn();
+        assertThat(QueryCountInspector.current()).isEqualTo(2);
+        String etag = mockMvc.perform(asyncDispatch(miss))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        // Hit and not-modified: the version lookup alone
+        QueryCountInspector.reset();
+        MvcResult hit = mockMvc.perform(get("/api/invoices/{id}/pdf", invoiceIds.get(0))).andReturn();
+        mockMvc.perform(asyncDispatch(hit)).andExpect(status().isOk());
+        assertThat(QueryCountInspector.current()).isEqualTo(1);
+
+        QueryCountInspector.reset();
+        mockMvc.perform(get("/api/invoices/{id}/pdf", invoiceIds.get(0)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertThat(QueryCountInspector.current()).isEqualTo(1);
+    }
+
+    @Test
+    void sendEndpointsQueueWithoutLoadingTheInvoice() throws Exception {
+        // An existence check and the outbox insert, plus a sequence fetch whenever the pooled block of ids runs
+        // out; the invoice itself is loaded by the outbox worker
+        QueryCountInspector.reset();
+        mockMvc.perform(post("/api/invoices/{id}/send-email", invoiceIds.get(0)).param("subject", "Your invoice"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("INVOICE"));
+        assertThat(QueryCountInspector.current()).isBetween(2L, 3L);
+
+        QueryCountInspector.reset();
+        mockMvc.perform(post("/api/invoices/{id}/send-reminder", invoiceIds.get(1)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("REMINDER"));
+        assertThat(QueryCountInspector.current()).isEqualTo(2);
+    }
+}
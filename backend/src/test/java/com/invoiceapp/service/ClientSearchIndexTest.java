@@ -0,0 +1,278 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.Client;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Checks the index against a brute-force scan over the same clients, through updates, removals and compactions
+class ClientSearchIndexTest {
+
+    private static final String[] WORDS = {"acme", "north", "star", "stark", "ab", "ba", "global", "nord",
+            "o'brien", "müller", "data", "labs", "a1", "zeta", "tar", "ark"};
+    private static final String LETTERS = "abcdeiklmnorstu1 ";
+
+    private final Random random = new Random(42);
+    private final Map<Long, Client> clients = new HashMap<>();
+    private final List<Runnable> compactions = new ArrayList<>();
+    private ClientSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ClientSearchIndex();
+        index.compactionExecutor = compactions::add;
+    }
+
+    @Test
+    void matchesBruteForceThroughUpdatesRemovalsAndCompaction() {
+        for (long id = 1; id <= 2000; id++) {
+            put(randomClient(id));
+        }
+        assertMatchesBruteForce(300);
+
+        // Enough rewrites to leave over a quarter of the documents dead
+        for (int i = 0; i < 1500; i++) {
+            long id = 1 + random.nextInt(2000);
+            if (random.nextInt(10) == 0) {
+                remove(id);
+            } else {
+                put(randomClient(id));
+            }
+        }
+        assertMatchesBruteForce(300);
+        assertThat(compactions).hasSize(1);
+
+        runCompactions();
+        assertMatchesBruteForce(300);
+    }
+
+    @Test
+    void writesMadeDuringACompactionAreReplayed() {
+        for (long id = 1; id <= 2000; id++) {
+            put(randomClient(id));
+        }
+        for (int i = 0; i < 1500; i++) {
+            put(randomClient(1 + random.nextInt(2000)));
+        }
+        assertThat(compactions).hasSize(1);
+
+        // Writes keep landing while the compaction copies the segment, builds the new one and swaps it in
+        Runnable compaction = compactions.remove(0);
+        Thread compactor = new Thread(compaction);
+        compactor.start();
+        for (int i = 0; i < 300 || compactor.isAlive(); i++) {
+            long id = 1 + random.nextInt(2100);
+            if (random.nextInt(5) == 0) {
+                remove(id);
+            } else {
+                put(randomClient(id));
+            }
+        }
+        join(compactor);
+        runCompactions();
+        assertMatchesBruteForce(300);
+    }
+
+    @Test
+    void ranksNameStartAboveEmailAndInsideMatches() {
+        put(client(1, "Northwind Traders", "sales@acme.test", null, null));
+        put(client(2, "Acme North", "info@acme.test", null, null));
+        put(client(3, "Globex", "sales.north@globex.test", null, null));
+        put(client(4, "Initech", "contact@initech.test", "555 0101", null));
+
+        Page<Long> hits = index.search("nor", 0, 10);
+        assertThat(hits.getContent()).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("acme nor", 0, 10).getContent()).containsExactly(2L, 1L);
+        assertThat(index.search("0101", 0, 10).getContent()).containsExactly(4L);
+        assertThat(index.search("n", 0, 10).getTotalElements()).isEqualTo(3);
+        assertThat(index.search("  ", 0, 10).getTotalElements()).isZero();
+    }
+
+    @Test
+    void pagesThroughAllHitsOnce() {
+        for (long id = 1; id <= 500; id++) {
+            put(randomClient(id));
+        }
+        String term = "a";
+        Page<Long> first = index.search(term, 0, 50);
+        List<Long> all = new ArrayList<>();
+        for (int page = 0; page * 50L < first.getTotalElements(); page++) {
+            all.addAll(index.search(term, page, 50).getContent());
+        }
+        assertThat(all).hasSize((int) first.getTotalElements()).doesNotHaveDuplicates();
+        assertThat(new HashSet<>(all)).isEqualTo(bruteForce(fields(), term).keySet());
+    }
+
+    private void assertMatchesBruteForce(int queries) {
+        Map<Long, String[]> fields = fields();
+        for (int i = 0; i < queries; i++) {
+            String term = randomQuery();
+            Map<Long, Integer> expected = bruteForce(fields, term);
+            Page<Long> hits = index.search(term, 0, Math.max(1, clients.size()));
+            assertThat(hits.getTotalElements()).as("total for '%s'", term).isEqualTo(expected.size());
+            assertThat(new HashSet<>(hits.getContent())).as("hits for '%s'", term).isEqualTo(expected.keySet());
+            int previous = Integer.MAX_VALUE;
+            for (Long id : hits.getContent()) {
+                int score = expected.get(id);
+                assertThat(score).as("rank of %s for '%s'", id, term).isLessThanOrEqualTo(previous);
+                previous = score;
+            }
+        }
+    }
+
+    // Name, email, phone digits and GST number of every client, normalized the way the index does
+    private Map<Long, String[]> fields() {
+        Map<Long, String[]> fields = new HashMap<>();
+        for (Client client : clients.values()) {
+            fields.put(client.getId(), new String[]{normalize(client.getName()), normalize(client.getEmail()),
+                    digits(client.getPhone()), normalize(client.getGstNumber()).replace(" ", "")});
+        }
+        return fields;
+    }
+
+    // Every term must match some field; a term scores its best field weight times match position
+    private static Map<Long, Integer> bruteForce(Map<Long, String[]> clientFields, String query) {
+        String normalizedQuery = normalize(query);
+        Map<Long, Integer> hits = new HashMap<>();
+        if (normalizedQuery.isEmpty()) {
+            return hits;
+        }
+        String[] terms = normalizedQuery.split(" ");
+        int[] weights = {4, 3, 2, 2};
+        for (Map.Entry<Long, String[]> client : clientFields.entrySet()) {
+            String[] fields = client.getValue();
+            int total = 0;
+            boolean matches = true;
+            for (String term : terms) {
+                int best = 0;
+                for (int field = 0; field < fields.length; field++) {
+                    String fieldTerm = field == 2 ? digits(term) : term;
+                    if (!fieldTerm.isEmpty()) {
+                        best = Math.max(best, weights[field] * position(fields[field], fieldTerm));
+                    }
+                }
+                if (best == 0) {
+                    matches = false;
+                    break;
+                }
+                total += best;
+            }
+            if (matches) {
+                hits.put(client.getKey(), total);
+            }
+        }
+        return hits;
+    }
+
+    // 3 at the field start, 2 at a word start, 1 inside a word (terms of three or more characters only)
+    private static int position(String value, String term) {
+        int best = 0;
+        for (int index = value.indexOf(term); index >= 0; index = value.indexOf(term, index + 1)) {
+            if (index == 0) {
+                return 3;
+            }
+            boolean wordStart = Character.isLetterOrDigit(value.charAt(index))
+                    && !Character.isLetterOrDigit(value.charAt(index - 1));
+            if (wordStart) {
+                best = Math.max(best, 2);
+            } else if (term.length() >= 3) {
+                best = Math.max(best, 1);
+            }
+        }
+        return best;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static String digits(String value) {
+        return value == null ? "" : value.replaceAll("[^0-9]", "");
+    }
+
+    private String randomQuery() {
+        int terms = 1 + random.nextInt(3);
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                query.append(' ');
+            }
+            if (random.nextBoolean()) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                int start = random.nextInt(word.length());
+                int end = Math.min(word.length(), start + 1 + random.nextInt(5));
+                query.append(random.nextInt(4) == 0 ? word.substring(start, end).toUpperCase(Locale.ROOT)
+                        : word.substring(start, end));
+            } else {
+                int length = 1 + random.nextInt(4);
+                for (int j = 0; j < length; j++) {
+                    query.append(LETTERS.charAt(random.nextInt(LETTERS.length() - 1)));
+                }
+            }
+        }
+        return query.toString();
+    }
+
+    private Client randomClient(long id) {
+        String name = word() + " " + word() + (random.nextBoolean() ? " " + word() : "");
+        String email = word().replace("'", "") + "." + word().replace("'", "") + "@" + word() + ".test";
+        String phone = random.nextInt(3) == 0 ? null : "+1 (" + (100 + random.nextInt(900)) + ") " + random.nextInt(10_000);
+        String gst = random.nextInt(3) == 0 ? null : (random.nextInt(90) + 10) + "ABC" + word().substring(0, 1) + " 1Z" + random.nextInt(10);
+        return client(id, name, email, phone, gst);
+    }
+
+    private String word() {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        return random.nextInt(3) == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word;
+    }
+
+    private static Client client(long id, String name, String email, String phone, String gstNumber) {
+        Client client = new Client(name, email);
+        client.setId(id);
+        client.setPhone(phone);
+        client.setGstNumber(gstNumber);
+        return client;
+    }
+
+    private void put(Client client) {
+        synchronized (clients) {
+            clients.put(client.getId(), client);
+        }
+        index.index(client);
+    }
+
+    private void remove(long id) {
+        synchronized (clients) {
+            clients.remove(id);
+        }
+        index.remove(id);
+    }
+
+    private void runCompactions() {
+        while (!compactions.isEmpty()) {
+            compactions.remove(0).run();
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.ClientStats;
+import com.invoiceapp.dto.DashboardSummary;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.ClientSummary;
+import com.invoiceapp.entity.DashboardRollup;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+import com.invoiceapp.repository.ClientSummaryRepository;
+import com.invoiceapp.repository.DashboardRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ClientServiceTest {
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private DashboardRollupRepository rollupRepository;
+
+    @Autowired
+    private ClientSummaryRepository summaryRepository;
+
+    @Test
+    void deletingAClientTakesItsInvoicesOffTheDashboard() {
+        Client client = clientService.saveClient(new Client("Rollup Removal Ltd", "accounts@rollupremoval.test"));
+        Long paid = createInvoice(client, "120.00");
+        createInvoice(client, "45.50");
+        createInvoice(client, "8.25");
+        invoiceService.updatePaymentStatus(paid, Invoice.PaymentStatus.PAID);
+        DashboardSummary before = dashboardService.getSummary();
+
+        clientService.deleteClient(client.getId());
+
+        DashboardSummary after = dashboardService.getSummary();
+        assertThat(after.getTotalInvoices()).isEqualTo(before.getTotalInvoices() - 3);
+        assertThat(after.getPendingInvoices()).isEqualTo(before.getPendingInvoices() - 2);
+        assertThat(after.getTotalRevenue()).isEqualByComparingTo(before.getTotalRevenue().subtract(new BigDecimal("120.00")));
+        assertThat(after.getTotalClients()).isEqualTo(before.getTotalClients() - 1);
+
+        DashboardRollup recomputed = rollupRepository.computeFromInvoices();
+        assertThat(after.getTotalInvoices()).isEqualTo(recomputed.getInvoiceCount());
+        assertThat(after.getPendingInvoices()).isEqualTo(recomputed.getPendingCount());
+        assertThat(after.getTotalRevenue()).isEqualByComparingTo(recomputed.getPaidRevenue());
+        assertThat(after.getTotalClients()).isEqualTo(recomputed.getCustomerCount());
+    }
+
+    @Test
+    void statsPagesSortedByInvoiceFiguresFollowInvoiceWrites() {
+        Client client = clientService.saveClient(new Client("Largest Debtor Ltd", "accounts@largestdebtor.test"));
+        assertThat(summaryRepository.findById(client.getId())).get()
+                .extracting(ClientSummary::getInvoiceCount).isEqualTo(0L);
+        Long invoice = createInvoice(client, "9999999.00");
+
+        ClientStats top = clientService.getClientStatsPage("outstanding", false, 0, 1).getItems().get(0);
+        assertThat(top.getClientId()).isEqualTo(client.getId());
+        assertThat(top.getOutstanding()).isEqualByComparingTo("9999999.00");
+        assertThat(top.getInvoiceCount()).isEqualTo(1L);
+
+        invoiceService.updatePaymentStatus(invoice, Invoice.PaymentStatus.PAID);
+        assertThat(clientService.getClientStatsPage("outstanding", false, 0, 1).getItems())
+                .extracting(ClientStats::getClientId).doesNotContain(client.getId());
+        assertThat(summaryRepository.findById(client.getId())).get()
+                .extracting(ClientSummary::getOutstanding).satisfies(o -> assertThat(o).isEqualByComparingTo("0"));
+
+        clientService.deleteClient(client.getId());
+        assertThat(summaryRepository.findById(client.getId())).isEmpty();
+    }
+
+    private Long createInvoice(Client client, String amount) {
+        Invoice invoice = new Invoice(null, client, LocalDate.now(), LocalDate.now().plusDays(30));
+        List<InvoiceItem> items = new ArrayList<>();
+        items.add(new InvoiceItem("Consulting", BigDecimal.ONE, new BigDecimal(amount)));
+        invoice.setItems(items);
+        invoice.setTaxRate(BigDecimal.ZERO);
+        return invoiceService.createInvoice(invoice).getId();
+    }
+}
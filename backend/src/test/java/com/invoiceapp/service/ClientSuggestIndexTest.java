@@ -0,0 +1,232 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.ClientSuggestion;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.repository.ClientRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Checks suggestions against a brute-force scan over the same clients, through the background build, merges
+// and slot reuse
+class ClientSuggestIndexTest {
+
+    private static final String[] WORDS = {"acme", "north", "star", "stark", "ab", "ba", "global", "nord",
+            "data", "labs", "a1", "zeta", "tar", "ark"};
+    private static final String LETTERS = "abdeklnorst1";
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final Random random = new Random(7);
+    private final Map<Long, Client> clients = new HashMap<>();
+    private final Map<Long, Integer> invoicedMinutes = new HashMap<>();
+    private final Set<Long> deleted = new HashSet<>();
+    private final ClientRepository clientRepository = mock(ClientRepository.class);
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private ClientSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ClientSuggestIndex();
+        ReflectionTestUtils.setField(index, "clientRepository", clientRepository);
+        ReflectionTestUtils.setField(index, "invoiceRepository", invoiceRepository);
+    }
+
+    @Test
+    void writesMadeDuringTheBuildAreReplayed() {
+        for (long id = 1; id <= 1000; id++) {
+            Client client = randomClient(id);
+            clients.put(id, client);
+            if (random.nextBoolean()) {
+                invoicedMinutes.put(id, random.nextInt(100_000));
+            }
+        }
+        List<Object[]> invoicedRows = new ArrayList<>();
+        invoicedMinutes.forEach((id, minute) -> invoicedRows.add(new Object[]{id, EPOCH.plusMinutes(minute)}));
+        List<Object[]> clientRows = new ArrayList<>();
+        clients.values().stream().sorted(Comparator.comparing(Client::getId))
+                .forEach(client -> clientRows.add(new Object[]{client.getId(), client.getName(), client.getEmail()}));
+        when(invoiceRepository.findLastCreatedAtByClient()).thenReturn(invoicedRows);
+        // The load reads the rows as they were, while saves, removals and invoices keep arriving
+        when(clientRepository.findNamesAndEmailsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            randomWrites(500);
+            return (Long) invocation.getArgument(0) == 0L ? clientRows : List.of();
+        });
+
+        randomWrites(200);
+        assertThat(index.isReady()).isFalse();
+        assertThat(index.suggest("a", 10)).isEmpty();
+
+        index.build();
+        assertThat(index.isReady()).isTrue();
+        assertMatchesBruteForce(200);
+    }
+
+    @Test
+    void matchesBruteForceThroughMergesAndSlotReuse() {
+        when(invoiceRepository.findLastCreatedAtByClient()).thenReturn(List.of());
+        when(clientRepository.findNamesAndEmailsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        index.build();
+
+        for (long id = 1; id <= 1500; id++) {
+            put(randomClient(id));
+        }
+        assertMatchesBruteForce(200);
+
+        // Enough renames to merge the buffer several times and hand the freed slots out again
+        for (int round = 0; round < 4; round++) {
+            randomWrites(3000);
+            assertMatchesBruteForce(100);
+        }
+        Object built = ReflectionTestUtils.getField(index, "index");
+        assertThat((int) ReflectionTestUtils.getField(built, "slotCount")).isLessThan(4 * 1500);
+    }
+
+    @Test
+    void ranksMostRecentlyInvoicedFirst() {
+        when(invoiceRepository.findLastCreatedAtByClient()).thenReturn(List.of());
+        when(clientRepository.findNamesAndEmailsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        index.build();
+
+        put(client(1, "Northwind Traders", "sales@northwind.test"));
+        put(client(2, "Acme North", "info@acme.test"));
+        put(client(3, "Globex", "north@globex.test"));
+        put(client(4, "Initech", "contact@initech.test"));
+        recordInvoiced(2, 50);
+        recordInvoiced(3, 10);
+
+        assertThat(index.suggest("nor", 10)).extracting(ClientSuggestion::getId).containsExactly(2L, 3L, 1L);
+        assertThat(index.suggest("acme no", 10)).extracting(ClientSuggestion::getId).containsExactly(2L);
+        assertThat(index.suggest("NOR", 1)).extracting(ClientSuggestion::getId).containsExactly(2L);
+        assertThat(index.suggest("nor", 10).get(0).getLastInvoicedAt()).isEqualTo(EPOCH.plusMinutes(50));
+        assertThat(index.suggest("  ", 10)).isEmpty();
+
+        index.remove(2L);
+        put(client(3, "Globex", "sales@globex.test"));
+        assertThat(index.suggest("nor", 10)).extracting(ClientSuggestion::getId).containsExactly(1L);
+        assertThat(index.suggest("sales", 10)).extracting(ClientSuggestion::getId).containsExactly(3L, 1L);
+    }
+
+    private void randomWrites(int count) {
+        for (int i = 0; i < count; i++) {
+            // Ids are never reused once deleted, as with the database sequence
+            long id = 1 + random.nextInt(1600);
+            int action = random.nextInt(10);
+            if (deleted.contains(id)) {
+                continue;
+            }
+            if (action == 0) {
+                deleted.add(id);
+                clients.remove(id);
+                invoicedMinutes.remove(id);
+                index.remove(id);
+            } else if (action < 4 && clients.containsKey(id)) {
+                recordInvoiced(id, random.nextInt(100_000));
+            } else {
+                put(randomClient(id));
+            }
+        }
+    }
+
+    private void assertMatchesBruteForce(int queries) {
+        for (int i = 0; i < queries; i++) {
+            String prefix = randomPrefix();
+            List<Long> expected = bruteForce(prefix);
+            List<ClientSuggestion> all = index.suggest(prefix, clients.size() + 1);
+            assertThat(all).extracting(ClientSuggestion::getId).as("suggestions for '%s'", prefix)
+                    .containsExactlyElementsOf(expected);
+
+            // A short list takes the most recent clients; which of several tied at the cut-off is not fixed
+            int limit = 1 + random.nextInt(10);
+            List<ClientSuggestion> top = index.suggest(prefix, limit);
+            assertThat(top).hasSize(Math.min(limit, expected.size()));
+            for (int j = 0; j < top.size(); j++) {
+                assertThat(invoicedMinutes.getOrDefault(top.get(j).getId(), 0)).as("rank %s for '%s'", j, prefix)
+                        .isEqualTo(invoicedMinutes.getOrDefault(expected.get(j), 0));
+            }
+        }
+    }
+
+    // Clients with a name word or the email starting with the prefix, most recently invoiced first, then by text
+    private List<Long> bruteForce(String prefix) {
+        String normalized = prefix.trim().toLowerCase(Locale.ROOT);
+        List<Client> matches = new ArrayList<>();
+        for (Client client : clients.values()) {
+            String name = client.getName().trim().toLowerCase(Locale.ROOT);
+            boolean matched = client.getEmail().trim().toLowerCase(Locale.ROOT).startsWith(normalized);
+            for (int i = 0; i < name.length() && !matched; i++) {
+                boolean wordStart = Character.isLetterOrDigit(name.charAt(i))
+                        && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)));
+                matched = wordStart && name.startsWith(normalized, i);
+            }
+            if (matched) {
+                matches.add(client);
+            }
+        }
+        matches.sort(Comparator.<Client>comparingInt(client -> invoicedMinutes.getOrDefault(client.getId(), 0))
+                .reversed()
+                .thenComparing(client -> client.getName().trim() + '\u0000' + client.getEmail().trim(),
+                        String.CASE_INSENSITIVE_ORDER));
+        return matches.stream().map(Client::getId).toList();
+    }
+
+    private void put(Client client) {
+        clients.put(client.getId(), client);
+        index.put(client);
+    }
+
+    private void recordInvoiced(long id, int minute) {
+        invoicedMinutes.merge(id, minute, Math::max);
+        index.recordInvoiced(id, EPOCH.plusMinutes(minute));
+    }
+
+    private Client randomClient(long id) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            name.append(i > 0 ? (random.nextBoolean() ? " " : "-") : "")
+                    .append(random.nextBoolean() ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return client(id, name.toString(), WORDS[random.nextInt(WORDS.length)] + id + "@example.test");
+    }
+
+    private String randomPrefix() {
+        if (random.nextInt(3) == 0) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            return word.substring(0, 1 + random.nextInt(word.length()));
+        }
+        StringBuilder prefix = new StringBuilder();
+        int length = 1 + random.nextInt(3);
+        for (int i = 0; i < length; i++) {
+            prefix.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return prefix.toString();
+    }
+
+    private static Client client(long id, String name, String email) {
+        Client client = new Client();
+        client.setId(id);
+        client.setName(name);
+        client.setEmail(email);
+        return client;
+    }
+}
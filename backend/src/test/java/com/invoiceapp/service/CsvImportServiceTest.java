@@ -0,0 +1,107 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.ImportResult;
+import com.invoiceapp.dto.InvoiceFilter;
+import com.invoiceapp.dto.RowError;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.entity.InvoiceItem;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CsvImportServiceTest {
+
+    @Autowired
+    private CsvImportService importService;
+
+    @Autowired
+    private InvoiceExportService exportService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Test
+    void exportedLineDiscountsAndTaxRatesImportUnchanged() throws Exception {
+        Client client = clientService.saveClient(new Client("Round Trip Ltd", "accounts@roundtrip.test"));
+        Invoice invoice = new Invoice(null, client, LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31));
+        invoice.setTaxRate(new BigDecimal("18.00"));
+        List<InvoiceItem> items = new ArrayList<>();
+        InvoiceItem discounted = new InvoiceItem("Licence", new BigDecimal("3"), new BigDecimal("49.99"));
+        discounted.setDiscountPercent(new BigDecimal("12.50"));
+        discounted.setTaxRate(new BigDecimal("5.00"));
+        items.add(discounted);
+        items.add(new InvoiceItem("Support", new BigDecimal("2"), new BigDecimal("80.00")));
+        invoice.setItems(items);
+        Invoice original = invoiceService.createInvoice(invoice);
+        InvoiceFilter filter = new InvoiceFilter(null, client.getId(), null, null);
+
+        String jsonl = export(filter, InvoiceExportService.DataFormat.JSONL);
+        assertThat(jsonl).contains("\"discountPercent\":12.50,\"taxRate\":5.00")
+                .contains("\"discountPercent\":null,\"taxRate\":null");
+
+        String csv = export(filter, InvoiceExportService.DataFormat.CSV);
+        assertThat(csv).startsWith("invoice_id,").contains(",item_discount_percent,item_tax_rate\r\n");
+        invoiceService.deleteInvoice(original.getId());
+        ImportResult result = importService.importCsv(null, new MockMultipartFile("invoices", "invoices.csv",
+                "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getInvoices().getErrors()).isEmpty();
+        assertThat(result.getInvoices().getCreated()).isEqualTo(1);
+        Long importedId = invoiceService.getInvoiceByNumber(original.getInvoiceNumber()).orElseThrow().getId();
+        Invoice imported = invoiceService.getInvoiceById(importedId).orElseThrow();
+        assertThat(imported.getItems()).extracting(InvoiceItem::getDescription, InvoiceItem::getDiscountPercent,
+                        InvoiceItem::getTaxRate, InvoiceItem::getTotal)
+                .containsExactly(
+                        tuple("Licence", new BigDecimal("12.50"), new BigDecimal("5.00"), new BigDecimal("131.22")),
+                        tuple("Support", null, null, new BigDecimal("160.00")));
+        assertThat(imported.getTaxAmount()).isEqualByComparingTo(original.getTaxAmount());
+        assertThat(imported.getTotal()).isEqualByComparingTo(original.getTotal());
+    }
+
+    @Test
+    void rowsOfOneInvoiceSplitByAnotherInvoiceAreReportedWithTheEarlierLine() throws Exception {
+        clientService.saveClient(new Client("Split Rows Ltd", "accounts@splitrows.test"));
+        String csv = "invoice_number,client_email,invoice_date,due_date,description,quantity,unit_price\r\n"
+                + "INV-SPLIT-1,accounts@splitrows.test,2026-04-01,2026-04-30,Design,1,100.00\r\n"
+                + "INV-SPLIT-2,accounts@splitrows.test,2026-04-01,2026-04-30,Hosting,1,20.00\r\n"
+                + "INV-SPLIT-1,accounts@splitrows.test,2026-04-01,2026-04-30,Build,1,300.00\r\n";
+
+        ImportResult result = importService.importCsv(null, new MockMultipartFile("invoices", "invoices.csv",
+                "text/csv", csv.getBytes(StandardCharsets.UTF_8)), "split-rows");
+
+        assertThat(result.getInvoices().getCreated()).isEqualTo(1);
+        assertThat(result.getInvoices().getSkipped()).isZero();
+        assertThat(result.getInvoices().getErrors()).extracting(RowError::getRow, RowError::getMessage)
+                .containsExactlyInAnyOrder(
+                        tuple(2, "More rows for invoice INV-SPLIT-1 follow at line 4, after other invoices; "
+                                + "rows of one invoice must be consecutive"),
+                        tuple(4, "Rows for invoice INV-SPLIT-1 must be consecutive, but it already started at line 2"));
+        assertThat(invoiceService.getInvoiceByNumber("INV-SPLIT-1")).isEmpty();
+        // Progress is only kept while the import runs
+        assertThat(importService.getProgress("split-rows")).isEmpty();
+    }
+
+    private String export(InvoiceFilter filter, InvoiceExportService.DataFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeData(filter, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
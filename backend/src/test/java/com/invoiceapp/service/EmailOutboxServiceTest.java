@@ -0,0 +1,134 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.dto.EmailSendResult;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.EmailOutboxMessage;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.repository.EmailOutboxRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs one poll on the calling thread against mocked repositories and checks what each claimed message ends as
+class EmailOutboxServiceTest {
+
+    private final EmailOutboxRepository outboxRepository = mock(EmailOutboxRepository.class);
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final Map<Long, EmailOutboxMessage> messages = new LinkedHashMap<>();
+    private final List<Invoice> invoices = new ArrayList<>();
+    private EmailOutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new EmailOutboxService();
+        ReflectionTestUtils.setField(outboxService, "outboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(outboxService, "invoiceRepository", invoiceRepository);
+        ReflectionTestUtils.setField(outboxService, "emailService", emailService);
+        ReflectionTestUtils.setField(outboxService, "workers", 1);
+        ReflectionTestUtils.setField(outboxService, "batchSize", 20);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 5);
+        ReflectionTestUtils.setField(outboxService, "backoffInitialMs", 30_000L);
+        ReflectionTestUtils.setField(outboxService, "backoffMaxMs", 3_600_000L);
+        ReflectionTestUtils.setField(outboxService, "staleAfterMs", 600_000L);
+        ReflectionTestUtils.setField(outboxService, "workerPool", new ExecutorServiceAdapter(new SyncTaskExecutor()));
+
+        when(outboxRepository.findIdsReadyToSend(any(), any(Pageable.class)))
+                .thenAnswer(invocation -> new ArrayList<>(messages.keySet()));
+        when(outboxRepository.claim(anyLong(), any())).thenAnswer(invocation -> {
+            EmailOutboxMessage message = messages.get((Long) invocation.getArgument(0));
+            message.setStatus(EmailOutboxMessage.Status.SENDING);
+            message.setClaimedAt(invocation.getArgument(1));
+            return 1;
+        });
+        when(outboxRepository.findAllById(any())).thenAnswer(invocation -> new ArrayList<>(messages.values()));
+        when(outboxRepository.complete(anyLong(), any(), any(), anyInt(), any(), any(), any())).thenReturn(1);
+        when(invoiceRepository.findDetailByIdIn(any())).thenReturn(invoices);
+        when(emailService.buildPaymentReminder(any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(anyList())).thenAnswer(invocation -> {
+            Collection<?> batch = invocation.getArgument(0);
+            return batch.stream().map(sent -> EmailSendResult.success()).toList();
+        });
+    }
+
+    @Test
+    void remindersForInvoicesNoLongerOwedAreSkippedWithoutSending() {
+        Invoice pending = invoice(1L, Invoice.PaymentStatus.PENDING);
+        Invoice overdue = invoice(2L, Invoice.PaymentStatus.OVERDUE);
+        Invoice paid = invoice(3L, Invoice.PaymentStatus.PAID);
+        Invoice cancelled = invoice(4L, Invoice.PaymentStatus.CANCELLED);
+        for (Invoice invoice : List.of(pending, overdue, paid, cancelled)) {
+            reminder(10 + invoice.getId(), invoice.getId());
+        }
+
+        outboxService.poll();
+
+        verify(emailService).buildPaymentReminder(pending);
+        verify(emailService).buildPaymentReminder(overdue);
+        verify(emailService, never()).buildPaymentReminder(paid);
+        verify(emailService, never()).buildPaymentReminder(cancelled);
+        verify(outboxRepository).complete(eq(11L), any(), eq(EmailOutboxMessage.Status.SENT), eq(1), isNull(),
+                isNull(), any(LocalDateTime.class));
+        verify(outboxRepository).complete(eq(12L), any(), eq(EmailOutboxMessage.Status.SENT), eq(1), isNull(),
+                isNull(), any(LocalDateTime.class));
+        verify(outboxRepository).complete(eq(13L), any(), eq(EmailOutboxMessage.Status.SKIPPED), eq(1), isNull(),
+                eq("Reminder not sent: invoice is PAID"), isNull());
+        verify(outboxRepository).complete(eq(14L), any(), eq(EmailOutboxMessage.Status.SKIPPED), eq(1), isNull(),
+                eq("Reminder not sent: invoice is CANCELLED"), isNull());
+    }
+
+    @Test
+    void skippedRemindersAreNeitherRetriedNorCountedAsFailures() {
+        reminder(21L, invoice(5L, Invoice.PaymentStatus.PAID).getId());
+
+        outboxService.poll();
+
+        EmailOutboxMessage message = messages.get(21L);
+        assertThat(message.getStatus()).isEqualTo(EmailOutboxMessage.Status.SKIPPED);
+        assertThat(message.getNextAttemptAt()).isNull();
+        assertThat(message.getSentAt()).isNull();
+        verify(emailService).sendBatch(List.of());
+    }
+
+    private Invoice invoice(Long id, Invoice.PaymentStatus status) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setInvoiceNumber("INV-" + id);
+        invoice.setPaymentStatus(status);
+        invoice.setClient(new Client());
+        invoices.add(invoice);
+        return invoice;
+    }
+
+    private void reminder(Long id, Long invoiceId) {
+        EmailOutboxMessage message = new EmailOutboxMessage(EmailOutboxMessage.Type.REMINDER, invoiceId, null, null, null);
+        message.setId(id);
+        message.setStatus(EmailOutboxMessage.Status.PENDING);
+        message.setAttempts(0);
+        messages.put(id, message);
+    }
+}
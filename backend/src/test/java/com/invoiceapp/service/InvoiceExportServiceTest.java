@@ -0,0 +1,57 @@
+package com.invoiceapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceExportServiceTest {
+
+    @Test
+    void keepsPlainInvoiceNumbers() {
+        assertThat(entryName(7L, "INV-0042")).isEqualTo("Invoice_INV-0042.pdf");
+        assertThat(entryName(7L, "2024.Q1_a")).isEqualTo("Invoice_2024.Q1_a.pdf");
+    }
+
+    @Test
+    void replacesPathAndControlCharactersAndAddsTheId() {
+        assertThat(entryName(7L, "../../etc/passwd")).isEqualTo("Invoice_.._.._etc_passwd_7.pdf");
+        assertThat(entryName(8L, "A\\B\r\nC")).isEqualTo("Invoice_A_B__C_8.pdf");
+        assertThat(entryName(9L, "Fäktura 1")).isEqualTo("Invoice_F_ktura_1_9.pdf");
+    }
+
+    @Test
+    void numbersThatSanitizeAlikeGetDistinctNames() {
+        Set<String> taken = new HashSet<>();
+        assertThat(InvoiceExportService.entryName(1L, "A/B", taken)).isEqualTo("Invoice_A_B_1.pdf");
+        assertThat(InvoiceExportService.entryName(2L, "A_B", taken)).isEqualTo("Invoice_A_B.pdf");
+        assertThat(InvoiceExportService.entryName(3L, "A:B", taken)).isEqualTo("Invoice_A_B_3.pdf");
+    }
+
+    @Test
+    void aSanitizedNameThatMatchesAnotherNumberGetsTheIdAgain() {
+        // "A/B" with id 7 sanitizes to the name the number "A_B_7" keeps as it is, whichever comes first
+        Set<String> taken = new HashSet<>();
+        assertThat(InvoiceExportService.entryName(7L, "A/B", taken)).isEqualTo("Invoice_A_B_7.pdf");
+        assertThat(InvoiceExportService.entryName(9L, "A_B_7", taken)).isEqualTo("Invoice_A_B_7_9.pdf");
+
+        taken = new HashSet<>();
+        assertThat(InvoiceExportService.entryName(9L, "A_B_7", taken)).isEqualTo("Invoice_A_B_7.pdf");
+        assertThat(InvoiceExportService.entryName(7L, "A/B", taken)).isEqualTo("Invoice_A_B_7_7.pdf");
+        assertThat(InvoiceExportService.entryName(4L, "A_B_7_7", taken)).isEqualTo("Invoice_A_B_7_7_4.pdf");
+        assertThat(taken).hasSize(3);
+    }
+
+    @Test
+    void namesDifferingOnlyInCaseDoNotOverwriteEachOtherWhenExtracted() {
+        Set<String> taken = new HashSet<>();
+        assertThat(InvoiceExportService.entryName(1L, "inv-1", taken)).isEqualTo("Invoice_inv-1.pdf");
+        assertThat(InvoiceExportService.entryName(2L, "INV-1", taken)).isEqualTo("Invoice_INV-1_2.pdf");
+    }
+
+    private static String entryName(Long invoiceId, String invoiceNumber) {
+        return InvoiceExportService.entryName(invoiceId, invoiceNumber, new HashSet<>());
+    }
+}
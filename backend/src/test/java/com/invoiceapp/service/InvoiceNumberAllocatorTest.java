@@ -0,0 +1,105 @@
+package com.invoiceapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+// Reservations are stubbed out so the test controls when and on which thread a block arrives
+class InvoiceNumberAllocatorTest {
+
+    private static final long REFILL_WAIT_MS = 300;
+
+    private final CountDownLatch reservationsBlocked = new CountDownLatch(1);
+    private final AtomicLong nextValue = new AtomicLong(1);
+    private volatile boolean blockReservations;
+    private volatile String reservingThread;
+    private InvoiceNumberAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new InvoiceNumberAllocator() {
+            @Override
+            Block reserve(int count) {
+                reservingThread = Thread.currentThread().getName();
+                if (blockReservations) {
+                    try {
+                        reservationsBlocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                long start = nextValue.getAndAdd(count);
+                return new Block(start, start + count, 0.5);
+            }
+        };
+        ReflectionTestUtils.setField(allocator, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(allocator, "blockSize", 4);
+        ReflectionTestUtils.setField(allocator, "prefetchRatio", 0.5);
+        ReflectionTestUtils.setField(allocator, "refillWaitMs", REFILL_WAIT_MS);
+        allocator.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationsBlocked.countDown();
+        allocator.shutdown();
+    }
+
+    @Test
+    void handsOutConsecutiveNumbersAcrossBlocks() {
+        for (long expected = 1; expected <= 10; expected++) {
+            assertThat(allocator.nextSequence()).isEqualTo(expected);
+        }
+        assertThat(reservingThread).isEqualTo("invoice-number-prefetch");
+    }
+
+    @Test
+    void largeBatchesAreReservedOnThePrefetchThread() {
+        List<String> numbers = allocator.nextInvoiceNumbers(6);
+
+        assertThat(numbers).containsExactly("INV-0001", "INV-0002", "INV-0003", "INV-0004", "INV-0005", "INV-0006");
+        assertThat(reservingThread).isEqualTo("invoice-number-prefetch");
+    }
+
+    @Test
+    void creatorsQueuedBehindAStuckRefillGiveUpWithinTheWaitBudget() throws Exception {
+        blockReservations = true;
+        // The first caller takes the refill lock and waits on the stuck reservation; the second waits for the lock
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(this::timedNextSequence);
+        Thread.sleep(50);
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(this::timedNextSequence);
+
+        assertThat(first.get()).isBetween(REFILL_WAIT_MS - 10, REFILL_WAIT_MS * 2);
+        // Not its own budget on top of whatever is left of the first caller's
+        assertThat(second.get()).isBetween(REFILL_WAIT_MS - 10, REFILL_WAIT_MS * 3 / 2);
+    }
+
+    @Test
+    void largeBatchesGiveUpWithinTheWaitBudget() {
+        blockReservations = true;
+
+        assertThatThrownBy(() -> allocator.nextInvoiceNumbers(8))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Timed out waiting for invoice numbers");
+    }
+
+    // How long nextSequence took to fail, in milliseconds
+    private long timedNextSequence() {
+        long started = System.nanoTime();
+        assertThatThrownBy(allocator::nextSequence).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Timed out waiting for invoice numbers");
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,155 @@
+package com.invoiceapp.service;
+
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.Invoice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Checks that a download holds its render slot only while rendering, not while the client reads
+class PdfServiceTest {
+
+    private static final int CACHE_LIMIT = 100_000;
+
+    private final InvoicePdfRenderer renderer = mock(InvoicePdfRenderer.class);
+    private final PdfCache pdfCache = mock(PdfCache.class);
+    private final Invoice invoice = new Invoice();
+    private PdfService pdfService;
+    private Semaphore renderPermits;
+
+    @BeforeEach
+    void setUp() {
+        pdfService = new PdfService();
+        ReflectionTestUtils.setField(pdfService, "renderer", renderer);
+        ReflectionTestUtils.setField(pdfService, "pdfCache", pdfCache);
+        ReflectionTestUtils.setField(pdfService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pdfService, "maxConcurrentRenders", 2);
+        ReflectionTestUtils.setField(pdfService, "renderWaitMs", 1000L);
+        pdfService.init();
+        renderPermits = (Semaphore) ReflectionTestUtils.getField(pdfService, "renderPermits");
+
+        invoice.setId(1L);
+        invoice.setInvoiceNumber("INV-000001");
+        invoice.setClient(new Client());
+        when(renderer.estimateSize(any())).thenReturn(64);
+        when(pdfCache.accepts(anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(0) <= CACHE_LIMIT);
+    }
+
+    @Test
+    void writesADocumentTheCacheTakesOnlyAfterReleasingTheSlot() throws IOException {
+        byte[] document = renderAs(60_000);
+        RecordingOutputStream client = new RecordingOutputStream();
+
+        pdfService.writeInvoicePdf(invoice, client);
+
+        assertThat(client.bytes.toByteArray()).isEqualTo(document);
+        assertThat(client.permitsSeen).isNotEmpty().allMatch(permits -> permits == 2);
+        verify(pdfCache).put(any(), eq(document));
+    }
+
+    @Test
+    void spoolsADocumentTooLargeForTheCacheAndWritesItAfterReleasingTheSlot() throws IOException {
+        byte[] document = renderAs(200_000);
+        RecordingOutputStream client = new RecordingOutputStream();
+        long spoolFiles = spoolFiles();
+
+        pdfService.writeInvoicePdf(invoice, client);
+
+        assertThat(client.bytes.toByteArray()).isEqualTo(document);
+        assertThat(client.permitsSeen).isNotEmpty().allMatch(permits -> permits == 2);
+        verify(pdfCache, never()).put(any(), any());
+        assertThat(spoolFiles()).isEqualTo(spoolFiles);
+    }
+
+    @Test
+    void keepsDocumentsSpanningSeveralChunksIntact() throws IOException {
+        when(pdfCache.accepts(anyInt())).thenReturn(true);
+        byte[] document = renderAs(300_001);
+        RecordingOutputStream client = new RecordingOutputStream();
+
+        pdfService.writeInvoicePdf(invoice, client);
+
+        assertThat(client.bytes.toByteArray()).isEqualTo(document);
+        assertThat(client.permitsSeen).allMatch(permits -> permits == 2);
+        verify(pdfCache).put(any(), eq(document));
+    }
+
+    @Test
+    void releasesTheSlotWhenRenderingFails() {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("broken font");
+        }).when(renderer).render(any(), any(OutputStream.class));
+
+        assertThatThrownBy(() -> pdfService.writeInvoicePdf(invoice, new RecordingOutputStream()))
+                .hasMessageContaining("broken font");
+        assertThat(renderPermits.availablePermits()).isEqualTo(2);
+    }
+
+    // The renderer writes the document in uneven pieces, a byte at a time now and then, flushing after each
+    private byte[] renderAs(int size) {
+        byte[] document = new byte[size];
+        new Random(size).nextBytes(document);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            for (int offset = 0, piece = 1; offset < size; offset += piece, piece = piece * 7 % 9001 + 1) {
+                if (piece % 5 == 0) {
+                    out.write(document[offset]);
+                    piece = 1;
+                } else {
+                    out.write(document, offset, Math.min(piece, size - offset));
+                }
+                out.flush();
+            }
+            return null;
+        }).when(renderer).render(any(), any(OutputStream.class));
+        return document;
+    }
+
+    private static long spoolFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("invoice-pdf-")).count();
+        }
+    }
+
+    // Records the free render slots every time bytes reach the client
+    private class RecordingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Integer> permitsSeen = new ArrayList<>();
+
+        @Override
+        public void write(int b) {
+            permitsSeen.add(renderPermits.availablePermits());
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            permitsSeen.add(renderPermits.availablePermits());
+            bytes.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.invoiceapp.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.invoiceapp.dto.EmailSendResult;
+import com.invoiceapp.entity.Client;
+import com.invoiceapp.entity.EmailOutboxMessage;
+import com.invoiceapp.entity.Invoice;
+import com.invoiceapp.repository.EmailOutboxRepository;
+import com.invoiceapp.repository.InvoiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Sends through the pool to an in-process SMTP server and counts the connections it took
+class SmtpTransportPoolTest {
+
+    private static final byte[] PDF = "%PDF-1.4 test".getBytes();
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP.dynamicPort());
+
+    private final PdfService pdfService = mock(PdfService.class);
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool transportPool;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+
+        transportPool = new SmtpTransportPool();
+        ReflectionTestUtils.setField(transportPool, "mailSender", mailSender);
+        ReflectionTestUtils.setField(transportPool, "poolSize", 2);
+        ReflectionTestUtils.setField(transportPool, "maxMessagesPerConnection", 3);
+        ReflectionTestUtils.setField(transportPool, "idleTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(transportPool, "borrowTimeoutMs", 1000L);
+        transportPool.init();
+
+        emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "mailSender", mailSender);
+        ReflectionTestUtils.setField(emailService, "transportPool", transportPool);
+        ReflectionTestUtils.setField(emailService, "pdfService", pdfService);
+        ReflectionTestUtils.setField(emailService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(emailService, "fromEmail", "billing@invoiceapp.test");
+        emailService.init();
+        when(pdfService.readInvoicePdf(any())).thenReturn(PDF);
+    }
+
+    @Test
+    void reusesAConnectionUntilItHasCarriedItsMessages() {
+        assertThat(emailService.sendBatch(List.of(email(1), email(2)))).allMatch(EmailSendResult::isSent);
+        assertThat(emailService.sendBatch(List.of(email(3)))).allMatch(EmailSendResult::isSent);
+        assertThat(transportPool.getStats().getHandshakes()).isEqualTo(1);
+
+        // The third message retired the connection, so the next batch opens another
+        assertThat(emailService.sendBatch(List.of(email(4)))).allMatch(EmailSendResult::isSent);
+        assertThat(transportPool.getStats().getHandshakes()).isEqualTo(2);
+        assertThat(transportPool.getStats().getMessagesSent()).isEqualTo(4);
+        assertThat(greenMail.getReceivedMessages()).hasSize(4);
+    }
+
+    @Test
+    void reportsEachMessageOfABatchSeparately() throws MessagingException {
+        MimeMessage noRecipients = email(2);
+        noRecipients.setRecipients(Message.RecipientType.TO, (String) null);
+
+        List<EmailSendResult> results = emailService.sendBatch(List.of(email(1), noRecipients, email(3)));
+
+        assertThat(results).extracting(EmailSendResult::isSent).containsExactly(true, false, true);
+        assertThat(results.get(1).getError()).startsWith("Failed to send email:");
+        // A refused message leaves the connection in use for the rest of the batch
+        assertThat(transportPool.getStats().getHandshakes()).isEqualTo(1);
+        assertThat(transportPool.getStats().getFailedSends()).isEqualTo(1);
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+    }
+
+    @Test
+    void failsEveryMessageWhenTheServerIsUnreachable() {
+        assertThat(emailService.sendBatch(List.of(email(1)))).allMatch(EmailSendResult::isSent);
+        greenMail.stop();
+
+        // The idle connection fails its check and a new one cannot be opened
+        List<EmailSendResult> results = emailService.sendBatch(List.of(email(2), email(3)));
+
+        assertThat(results).noneMatch(EmailSendResult::isSent);
+        assertThat(results).extracting(EmailSendResult::getError).allMatch(error -> error.startsWith("Failed to connect"));
+        assertThat(transportPool.getStats().getIdleConnections()).isZero();
+    }
+
+    @Test
+    void outboxSendsEachBatchOverOneConnection() throws Exception {
+        EmailOutboxRepository outboxRepository = mock(EmailOutboxRepository.class);
+        InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+        EmailOutboxService outboxService = new EmailOutboxService();
+        ReflectionTestUtils.setField(outboxService, "outboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(outboxService, "invoiceRepository", invoiceRepository);
+        ReflectionTestUtils.setField(outboxService, "emailService", emailService);
+        ReflectionTestUtils.setField(outboxService, "workers", 1);
+        ReflectionTestUtils.setField(outboxService, "batchSize", 3);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 5);
+        ReflectionTestUtils.setField(outboxService, "workerPool", new ExecutorServiceAdapter(new SyncTaskExecutor()));
+
+        Map<Long, EmailOutboxMessage> messages = new LinkedHashMap<>();
+        List<Invoice> invoices = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            invoices.add(invoice(id));
+            EmailOutboxMessage.Type type = id == 3 ? EmailOutboxMessage.Type.REMINDER : EmailOutboxMessage.Type.INVOICE;
+            EmailOutboxMessage message = new EmailOutboxMessage(type, id, null, null, null);
+            message.setId(100 + id);
+            message.setStatus(EmailOutboxMessage.Status.PENDING);
+            message.setAttempts(0);
+            messages.put(message.getId(), message);
+        }
+        when(outboxRepository.findIdsReadyToSend(any(), any(Pageable.class)))
+                .thenAnswer(invocation -> new ArrayList<>(messages.keySet()));
+        when(outboxRepository.claim(anyLong(), any())).thenAnswer(invocation -> {
+            EmailOutboxMessage message = messages.get((Long) invocation.getArgument(0));
+            message.setStatus(EmailOutboxMessage.Status.SENDING);
+            message.setClaimedAt(invocation.getArgument(1));
+            return 1;
+        });
+        when(outboxRepository.findAllById(any())).thenAnswer(invocation -> new ArrayList<>(messages.values()));
+        when(outboxRepository.complete(anyLong(), any(), any(), anyInt(), any(), any(), any())).thenReturn(1);
+        when(invoiceRepository.findDetailByIdIn(any())).thenReturn(invoices);
+
+        outboxService.poll();
+
+        assertThat(messages.values()).extracting(EmailOutboxMessage::getStatus)
+                .containsOnly(EmailOutboxMessage.Status.SENT);
+        assertThat(transportPool.getStats().getHandshakes()).isEqualTo(1);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(3);
+        assertThat(received).extracting(MimeMessage::getSubject)
+                .containsExactlyInAnyOrder("Invoice INV-1", "Invoice INV-2", "Payment Reminder - Invoice INV-3");
+        MimeMultipart content = (MimeMultipart) received[0].getContent();
+        assertThat(GreenMailUtil.getBody(content.getBodyPart(1))).isNotEmpty();
+        assertThat(content.getBodyPart(1).getFileName()).startsWith("Invoice_INV-");
+    }
+
+    private MimeMessage email(int number) {
+        return emailService.buildInvoiceEmail(invoice(number), "client" + number + "@example.test", null, null);
+    }
+
+    private static Invoice invoice(long id) {
+        Client client = new Client("Client " + id, "client" + id + "@example.test");
+        Invoice invoice = new Invoice("INV-" + id, client, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31));
+        invoice.setId(id);
+        invoice.setTotal(new BigDecimal("100.00"));
+        invoice.setPaymentStatus(Invoice.PaymentStatus.PENDING);
+        return invoice;
+    }
+}